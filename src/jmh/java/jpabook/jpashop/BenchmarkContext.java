@@ -0,0 +1,132 @@
+package jpabook.jpashop;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 벤치마크용 스프링 컨텍스트 (웹 없이 JPA 계층만, 메모리 H2)
+ *
+ *   - orders 건의 주문, 주문당 itemsPerOrder 개의 주문상품을 넣는다. (members, items 는 주문 수에 비례)
+ *   - seed 가 같으면 같은 데이터가 만들어진다.
+ *   - SQL 로그와 p6spy 는 끈다. (로그 출력이 측정값을 덮어버린다)
+ */
+@State(Scope.Benchmark)
+public class BenchmarkContext {
+
+    @Param({"100", "1000"})
+    public int orders;
+
+    @Param({"1", "5"})
+    public int itemsPerOrder;
+
+    @Param("42")
+    public long seed;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate readOnly;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = start();
+
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> seed(bean(EntityManager.class)));
+    }
+
+    /**
+     * @param properties 추가 / 덮어쓸 설정 ("key=value")
+     */
+    public static ConfigurableApplicationContext start(String... properties) {
+        return new SpringApplicationBuilder(JpashopApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "decorator.datasource.enabled=false",
+                        "logging.level.org.hibernate.SQL=warn",
+                        "logging.level.org.hibernate.type=warn",
+                        "logging.level.root=warn")
+                .properties(properties)
+                .run();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * 읽기 전용 트랜잭션 (호출마다 새 영속성 컨텍스트)
+     */
+    public TransactionTemplate readOnly() {
+        return readOnly;
+    }
+
+    private void seed(EntityManager em) {
+        Random random = new Random(seed);
+
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < Math.max(orders / 10, 1); i++) {
+            Member member = new Member();
+            member.setName("member" + i);
+            member.setAddress(new Address("city" + random.nextInt(100), "street" + i, String.valueOf(10000 + i)));
+            em.persist(member);
+            members.add(member);
+        }
+
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < Math.max(orders / 5, itemsPerOrder); i++) {
+            Book book = new Book();
+            book.setName("book" + i);
+            book.setPrice(1000 * (1 + random.nextInt(50)));
+            book.setStockQuantity(Integer.MAX_VALUE);
+            em.persist(book);
+            books.add(book);
+        }
+
+        for (int i = 0; i < orders; i++) {
+            Member member = members.get(random.nextInt(members.size()));
+            OrderItem[] orderItems = new OrderItem[itemsPerOrder];
+            for (int j = 0; j < itemsPerOrder; j++) {
+                Book book = books.get(random.nextInt(books.size()));
+                orderItems[j] = OrderItem.createOrderItem(book, book.getPrice(), 1 + random.nextInt(3));
+            }
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            em.persist(Order.createOrder(member, delivery, orderItems));
+
+            if (i % 500 == 499) {
+                em.flush();
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+}
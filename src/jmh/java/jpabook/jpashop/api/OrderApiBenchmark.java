@@ -0,0 +1,101 @@
+package jpabook.jpashop.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.BenchmarkContext;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.repository.FetchPlan;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.order.query.OrderFlatAssembler;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 조회 API 버전별 비용 (OrderApiController 의 V3 ~ V6)
+ *
+ *   - 조회 벤치마크는 호출마다 읽기 전용 트랜잭션을 새로 열고 DTO 까지 변환한다. (컨트롤러가 하는 일과 같은 범위)
+ *   - mapOrderDtos / serializeOrderDtos 는 DB 없이 변환, 직렬화 비용만 잰다.
+ *   - 할당량은 -prof gc 의 gc.alloc.rate.norm (build.gradle 에 기본 설정)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class OrderApiBenchmark {
+
+    private OrderRepository orderRepository;
+    private OrderQueryRepository orderQueryRepository;
+    private ObjectMapper objectMapper;
+
+    private List<Order> loadedOrders;        // 연관까지 모두 로딩된 준영속 주문
+    private List<OrderApiController.OrderDto> orderDtos;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkContext context) {
+        orderRepository = context.bean(OrderRepository.class);
+        orderQueryRepository = context.bean(OrderQueryRepository.class);
+        objectMapper = context.bean(ObjectMapper.class);
+
+        loadedOrders = context.readOnly().execute(status -> orderRepository.findAll(FetchPlan.ORDER_DETAIL));
+        orderDtos = toDtos(loadedOrders);
+    }
+
+    /** V3: 컬렉션 fetch join (distinct) */
+    @Benchmark
+    public List<OrderApiController.OrderDto> v3_fetchJoinItems(BenchmarkContext context) {
+        return context.readOnly().execute(status -> toDtos(orderRepository.findAllWithItem()));
+    }
+
+    /** V3.1: ToOne fetch join + 컬렉션은 default_batch_fetch_size 로 IN 조회 */
+    @Benchmark
+    public List<OrderApiController.OrderDto> v3_1_batchFetch(BenchmarkContext context) {
+        return context.readOnly().execute(status -> toDtos(orderRepository.findAllWithMemberDelivery()));
+    }
+
+    /** V4: DTO 직접 조회 (주문마다 orderItems 쿼리, 1 + N) */
+    @Benchmark
+    public List<OrderQueryDto> v4_dtoPerOrder(BenchmarkContext context) {
+        return context.readOnly().execute(status -> orderQueryRepository.findOrderQueryDtos());
+    }
+
+    /** V5: DTO 직접 조회 + orderItems IN 조회 (1 + 1) */
+    @Benchmark
+    public List<OrderQueryDto> v5_dtoInQuery(BenchmarkContext context) {
+        return context.readOnly().execute(status -> orderQueryRepository.findAllByDto_optimization());
+    }
+
+    /** V6: 플랫 조인 1번 + 애플리케이션에서 주문 단위로 접기 */
+    @Benchmark
+    public List<OrderQueryDto> v6_flatAssemble(BenchmarkContext context) {
+        return context.readOnly().execute(status -> OrderFlatAssembler.assemble(orderQueryRepository.findAllByDto_flat()));
+    }
+
+    /** 엔티티 → DTO 변환만 */
+    @Benchmark
+    public List<OrderApiController.OrderDto> mapOrderDtos() {
+        return toDtos(loadedOrders);
+    }
+
+    /** DTO → JSON 직렬화만 */
+    @Benchmark
+    public byte[] serializeOrderDtos() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(orderDtos);
+    }
+
+    private static List<OrderApiController.OrderDto> toDtos(List<Order> orders) {
+        return orders.stream()
+                .map(OrderApiController.OrderDto::new)
+                .collect(Collectors.toList());
+    }
+}
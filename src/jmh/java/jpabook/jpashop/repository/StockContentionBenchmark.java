@@ -0,0 +1,128 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.BenchmarkContext;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 상품에 동시 주문이 몰릴 때의 재고 차감 (8 스레드)
+ *
+ *   - atomicDecrement: ItemStockRepository 의 조건부 update 1번 (재시도 없음)
+ *   - optimisticRetry : 읽고 → 계산 → "where stock_quantity = 읽은값" 으로 쓰기, 0 row 면 처음부터 재시도
+ *                       (@Version 낙관적 락과 같은 방식. 재고 값 자체를 버전으로 쓴다)
+ *
+ *   hotItems 가 작을수록 경합이 심하다. 보조 카운터 retries / decrements = 차감 1번당 재시도 수
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Threads(8)
+public class StockContentionBenchmark {
+
+    @Param({"1", "16"})
+    public int hotItems;
+
+    private ConfigurableApplicationContext context;
+    private ItemStockRepository itemStockRepository;
+    private EntityManager em;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private final List<Long> itemIds = new ArrayList<>();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long decrements;
+        public long retries;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            decrements = 0;
+            retries = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        itemStockRepository = context.getBean(ItemStockRepository.class);
+        em = context.getBean(EntityManager.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < hotItems; i++) {
+                Book book = new Book();
+                book.setName("hot-book" + i);
+                book.setPrice(10000);
+                book.setStockQuantity(Integer.MAX_VALUE);
+                em.persist(book);
+                itemIds.add(book.getId());
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean atomicDecrement(Counters counters) {
+        Long itemId = randomItem();
+        Boolean done = transactionTemplate.execute(status -> itemStockRepository.decrease(em.getReference(Item.class, itemId), 1));
+        counters.decrements++;
+        return done;
+    }
+
+    @Benchmark
+    public boolean optimisticRetry(Counters counters) {
+        Long itemId = randomItem();
+        while (true) {
+            // 1: 차감, 0: 다른 스레드가 먼저 바꿈(재시도), -1: 재고 없음
+            Integer result = transactionTemplate.execute(status -> {
+                Integer stock = jdbcTemplate.queryForObject(
+                        "select stock_quantity from item where item_id = ?", Integer.class, itemId);
+                if (stock == null || stock < 1) {
+                    return -1;
+                }
+                return jdbcTemplate.update("update item set stock_quantity = ? where item_id = ? and stock_quantity = ?",
+                        stock - 1, itemId, stock);
+            });
+            if (result == null || result < 0) {
+                return false;
+            }
+            if (result == 1) {
+                counters.decrements++;
+                return true;
+            }
+            counters.retries++;
+        }
+    }
+
+    private Long randomItem() {
+        return itemIds.get(ThreadLocalRandom.current().nextInt(itemIds.size()));
+    }
+}
@@ -0,0 +1,126 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.BenchmarkContext;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.monitoring.RequestMetrics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 저장 경로의 DB 왕복 수 (OrderService.order)
+ *
+ *   - jdbcBatchSize=1 : batch 없음 (엔티티마다 insert 1번)
+ *   - jdbcBatchSize=50: 같은 테이블 insert 를 묶어서 전송 (order_inserts)
+ *   - ID 는 시퀀스 pooled-lo(allocationSize 50) 이므로 시퀀스 조회는 50건에 1번.
+ *     (이전 @GeneratedValue 기본값은 hibernate_sequence 를 엔티티마다 1번 조회: 주문 1건에 주문, 배송, 주문상품 3번)
+ *
+ *   보조 카운터 statements / orders = 주문 1건당 SQL(왕복) 수
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class OrderWriteBenchmark {
+
+    private static final int ITEMS = 100;
+
+    @Param({"1", "50"})
+    public int jdbcBatchSize;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private TransactionTemplate transactionTemplate;
+    private Long memberId;
+    private final List<Long> itemIds = new ArrayList<>();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RoundTrips {
+        public long statements;
+        public long orders;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            statements = 0;
+            orders = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize);
+        orderService = context.getBean(OrderService.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            EntityManager em = context.getBean(EntityManager.class);
+            Member member = new Member();
+            member.setName("bench-writer");
+            member.setAddress(new Address("서울", "벤치", "00000"));
+            em.persist(member);
+            memberId = member.getId();
+
+            for (int i = 0; i < ITEMS; i++) {
+                Book book = new Book();
+                book.setName("bench-book" + i);
+                book.setPrice(10000);
+                book.setStockQuantity(Integer.MAX_VALUE);
+                em.persist(book);
+                itemIds.add(book.getId());
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /** 주문 1건 = 트랜잭션 1개 */
+    @Benchmark
+    public Long singleOrder(RoundTrips roundTrips) {
+        try (RequestMetrics.Scope scope = RequestMetrics.open()) {
+            Long orderId = orderService.order(memberId, randomItem(), 1);
+            roundTrips.statements += scope.finish().getStatements();
+            roundTrips.orders++;
+            return orderId;
+        }
+    }
+
+    /** 주문 10건 = 트랜잭션 1개 (커밋 시 한 번에 flush 되므로 batch 효과가 보인다) */
+    @Benchmark
+    public void tenOrdersPerTransaction(RoundTrips roundTrips) {
+        try (RequestMetrics.Scope scope = RequestMetrics.open()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < 10; i++) {
+                    orderService.order(memberId, randomItem(), 1);
+                }
+            });
+            roundTrips.statements += scope.finish().getStatements();
+            roundTrips.orders += 10;
+        }
+    }
+
+    private Long randomItem() {
+        return itemIds.get(ThreadLocalRandom.current().nextInt(itemIds.size()));
+    }
+}
@@ -2,7 +2,9 @@ package jpabook.jpashop;
 
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.OrderService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,15 +21,18 @@ import javax.persistence.EntityManager;
  * 	 * SPRING2 BOOK
  */
 @Component
+@Profile("!seed")              // seed 프로필은 BulkDataGenerator 가 대용량 데이터를 넣는다.
 @RequiredArgsConstructor
 public class InitDb {
 
     private final InitService initService;
+    private final OrderService orderService;
 
     @PostConstruct
     public void init() {
         initService.dbInit1();
         initService.dbInit2();
+        orderService.rebuildOrderSummary();   // 직접 저장한 주문으로 목록 요약 채우기
     }
 
     @Component
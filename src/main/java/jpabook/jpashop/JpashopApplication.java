@@ -1,10 +1,13 @@
 package jpabook.jpashop;
 
 import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+@EnableScheduling
 @SpringBootApplication
 public class JpashopApplication {
 
@@ -19,10 +22,16 @@ public class JpashopApplication {
 	}
 
 	@Bean
-	Hibernate5Module hibernate5Module() {
+	Hibernate5Module hibernate5Module(@Value("${jpashop.json.fail-on-lazy:false}") boolean failOnLazy) {
 		Hibernate5Module hibernate5Module = new Hibernate5Module();
 		//강제 지연 로딩 설정 사용 금지.
 		//hibernate5Module.configure(Hibernate5Module.Feature.FORCE_LAZY_LOADING, true);
+
+		// strict 프로필: 초기화 안 된 연관을 null 로 내보내지 않고 로딩을 시도하게 해서,
+		// OSIV 가 꺼진 응답 직렬화 시점에 LazyInitializationException 으로 실패시킨다. (쿼리는 나가지 않는다)
+		if (failOnLazy) {
+			hibernate5Module.configure(Hibernate5Module.Feature.FORCE_LAZY_LOADING, true);
+		}
 		return hibernate5Module;
 	}
 
@@ -0,0 +1,32 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.service.OrderService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 운영용 API
+ */
+@RestController
+@RequiredArgsConstructor
+public class AdminApiController {
+
+    private final OrderService orderService;
+
+    /**
+     * 주문 목록 요약(order_summary)을 원본 테이블에서 다시 채운다.
+     * */
+    @PostMapping("/api/admin/order-summary/rebuild")
+    public RebuildResponse rebuildOrderSummary() {
+        return new RebuildResponse(orderService.rebuildOrderSummary());
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class RebuildResponse {
+        private int count;
+    }
+}
@@ -1,12 +1,16 @@
 package jpabook.jpashop.api;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.CursorPage;
+import jpabook.jpashop.repository.support.TotalCountCache;
 import jpabook.jpashop.service.MemberService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
@@ -48,12 +52,29 @@ public class MemberApiController {
 
     /**
      * 조회 결과로 노출할 것만 전달해 주는 보안에 좋은 방식임.
+     *   엔티티 대신 DTO 로 한 페이지만 조회한다. (회원ID 키셋 페이징)
+     *   응답의 nextCursor 를 다음 요청의 cursor 로 넘기고, 없으면 마지막 페이지.
+     *   name 을 주면 이름 접두어로 거른다. (이때 totalCount 는 내려주지 않는다)
      * */
     @GetMapping("/api/v2/members")
-    public Result membersV2() {
-        List<Member> findMembers = memberService.findMembers();
-        List<MemberDto> collect = findMembers.stream()
-                .map(m-> new MemberDto(m.getName()))
+    public Result membersV2(@RequestParam(value = "name", required = false) String name,
+                            @RequestParam(value = "cursor", required = false) String cursor,
+                            @RequestParam(value = "limit", defaultValue = "100") int limit,
+                            @RequestParam(value = "count", defaultValue = "estimated") String count) {
+        CursorPage<MemberDto> page = memberService.findMemberPage(name, cursor, limit)
+                .map(m -> new MemberDto(m.getName()));
+        Long totalCount = StringUtils.hasText(name) ? null : memberService.countMembers(TotalCountCache.Mode.of(count));
+        return new Result(page.getCount(), page.getData(), totalCount, page.getNextCursor());
+    }
+
+    /**
+     * 회원 이름 자동완성: 메모리 이름 인덱스에서 접두어로 찾는다. (DB 조회 없음)
+     * */
+    @GetMapping("/api/members/typeahead")
+    public Result typeahead(@RequestParam("q") String q,
+                            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        List<MemberDto> collect = memberService.typeahead(q, Math.min(limit, 100)).stream()
+                .map(MemberDto::new)
                 .collect(Collectors.toList());
         return new Result(collect.size(), collect);
     }
@@ -63,6 +84,14 @@ public class MemberApiController {
     static class Result<T> {
         private int count;
         private T data;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Long totalCount;    // 전체 건수 (count 캐시)
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private String nextCursor;  // 다음 페이지 커서 (없으면 마지막 페이지)
+
+        Result(int count, T data) {
+            this(count, data, null, null);
+        }
     }
 
     @Data
@@ -0,0 +1,23 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.repository.CursorPage;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 응답 본문이 List 인 (구버전) API 에서 다음 페이지 커서를 헤더로 전달한다.
+ * 헤더가 없으면 마지막 페이지.
+ */
+final class NextCursorHeader {
+
+    static final String NAME = "X-Next-Cursor";
+
+    private NextCursorHeader() {
+    }
+
+    static void write(HttpServletResponse response, CursorPage<?> page) {
+        if (page.isHasNext()) {
+            response.setHeader(NAME, page.getNextCursor());
+        }
+    }
+}
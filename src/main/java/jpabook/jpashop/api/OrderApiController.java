@@ -1,34 +1,70 @@
 package jpabook.jpashop.api;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.CursorPage;
+import jpabook.jpashop.repository.FetchPlan;
+import jpabook.jpashop.repository.OrderCursor;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
-import jpabook.jpashop.repository.order.query.OrderFlatDto;
-import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderFlatAssembler;
 import jpabook.jpashop.repository.order.query.OrderQueryDto;
 import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.support.TotalCountCache;
+import jpabook.jpashop.service.BulkOrderRequest;
+import jpabook.jpashop.service.BulkOrderResult;
+import jpabook.jpashop.service.BulkOrderService;
+import jpabook.jpashop.service.OrderIdempotency;
+import jpabook.jpashop.service.OrderLine;
+import jpabook.jpashop.service.OrderQueryService;
+import jpabook.jpashop.service.OrderService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
-import static java.util.stream.Collectors.*;
-import static java.util.stream.Collectors.toList;
-
 @RestController
 @RequiredArgsConstructor
 public class OrderApiController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final OrderRepository orderRepository;
     private final OrderQueryRepository orderQueryRepository;
+    private final OrderQueryService orderQueryService;
+    private final OrderService orderService;
+    private final BulkOrderService bulkOrderService;
+    private final OrderIdempotency orderIdempotency;
+    private final ObjectMapper objectMapper;
 
     /** 
      * 주문 조회 V1: 엔티티 직접 노출
@@ -36,8 +72,15 @@ public class OrderApiController {
      * */
     
     @GetMapping("/api/v1/orders")
-    public List<Order> ordersV1() {
-        List<Order> all = orderRepository.findAllByString(new OrderSearch());
+    public List<Order> ordersV1(@RequestParam(value = "cursor", required = false) String cursor,
+                                @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                HttpServletResponse response) {
+        CursorPage<Order> page = orderService.findOrders(new OrderSearch(), OrderCursor.decode(cursor), limit, FetchPlan.ORDER_DETAIL);
+        NextCursorHeader.write(response, page);
+
+        // 조회 트랜잭션 안에서 fetch plan 으로 이미 로딩되어 있으므로 아래 초기화는 쿼리를 추가로 실행하지 않는다.
+        // (OSIV 를 꺼도 초기화된 연관이라 LazyInitializationException 이 나지 않는다)
+        List<Order> all = page.getData();
         for (Order order : all) {
             order.getMember().getName();
             order.getDelivery().getAddress();
@@ -57,8 +100,13 @@ public class OrderApiController {
      *             엔티티를 외부에 노출하면 안된다.
      * */
     @GetMapping("/api/v2/orders")
-    public List<OrderDto> ordersV2() {
-        List<Order> orders = orderRepository.findAllByString(new OrderSearch());
+    public List<OrderDto> ordersV2(@RequestParam(value = "cursor", required = false) String cursor,
+                                   @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                   HttpServletResponse response) {
+        CursorPage<Order> page = orderService.findOrders(new OrderSearch(), OrderCursor.decode(cursor), limit, FetchPlan.ORDER_DETAIL);
+        NextCursorHeader.write(response, page);
+
+        List<Order> orders = page.getData();
 
         List<OrderDto> collect = orders.stream()
                 .map(o -> new OrderDto(o))
@@ -152,7 +200,12 @@ public class OrderApiController {
     @GetMapping("/api/v3.1/orders")
     public List<OrderDto> ordersV3_page( @RequestParam(value="offset", defaultValue="0") int offset
                                        , @RequestParam(value="limit", defaultValue="10") int limit
+                                       , @RequestParam(value="count", defaultValue="estimated") String count
+                                       , HttpServletResponse response
                                        ) {
+        // 전체 건수는 count 캐시에서 (count=exact 이면 count 쿼리)
+        TotalCountHeader.write(response, orderService.countOrders(new OrderSearch(), TotalCountCache.Mode.of(count)));
+
         List<Order> orders = orderRepository.findAllWithMemberDelivery(offset,limit);
 
         List<OrderDto> collect = orders.stream()
@@ -163,6 +216,21 @@ public class OrderApiController {
     }
 
 
+    /**
+     * 주문 조회 V3.2: 키셋(seek) 페이징
+     *              offset 은 앞 페이지 로우를 모두 읽고 버리므로 페이지가 깊어질수록 느려진다.
+     *              마지막 (orderDate, id) 를 담은 커서 이후부터 읽어서 페이지 깊이와 무관하게 일정하다.
+     *              응답의 nextCursor 를 다음 요청의 cursor 로 넘기고, null 이면 마지막 페이지.
+     * */
+    @GetMapping("/api/v3.2/orders")
+    public CursorPage<OrderDto> ordersV3_cursor( @RequestParam(value="cursor", required=false) String cursor
+                                               , @RequestParam(value="limit", defaultValue="10") int limit
+                                               ) {
+        return orderRepository.findAllWithMemberDelivery(OrderCursor.decode(cursor), limit)
+                .map(o -> new OrderDto(o));
+    }
+
+
     /**
      * 주문 조회 V4: JPA에서 DTO 직접 조회
      *
@@ -184,26 +252,192 @@ public class OrderApiController {
     }
 
 
+    /**
+     * 주문 조회 V5.1: V5 + 검색조건(OrderSearch) + 키셋 페이징
+     *              루트를 먼저 limit 으로 자르고, 그 페이지 주문번호의 orderItems 만 IN 으로 조회한다.
+     *              테이블 크기와 관계없이 페이지당 쿼리 2번.
+     * */
+    @GetMapping("/api/v5.1/orders")
+    public CursorPage<OrderQueryDto> orderV5_page( OrderSearch orderSearch
+                                                 , @RequestParam(value="cursor", required=false) String cursor
+                                                 , @RequestParam(value="limit", defaultValue="10") int limit
+                                                 , @RequestParam(value="count", defaultValue="estimated") String count
+                                                 , HttpServletResponse response
+                                                 ) {
+        TotalCountHeader.write(response, orderService.countOrders(orderSearch, TotalCountCache.Mode.of(count)));
+        return orderQueryRepository.findAllByDto_optimization(orderSearch, OrderCursor.decode(cursor), limit);
+    }
+
+
     /**
      * 주문 조회 V6: JPA에서 DTO로 직접 조회, 플랫 데이터 최적화
      *             상황에 따라서 V5보다 느릴 수 있다.
-     *             애플리케이션에서 추가 작업이 많은 단점.
-     *             페이지 처리가 안된다.
+     *             쿼리는 1번이지만 조인으로 중복된 로우를 애플리케이션에서 다시 주문 단위로 접어야 한다.
+     *             주문번호 순으로 정렬된 로우를 OrderFlatAssembler 로 한 번에 접으므로 주문 순서가 유지된다.
+     *             limit 을 주면 주문 경계로 페이징한다. (1 ~ 1000, 다음 페이지 afterOrderId 는 X-Next-Cursor 헤더로)
      * */
     @GetMapping("/api/v6/orders")
     //public List<OrderFlatDto> orderV6() {
     //    return orderQueryRepository.findAllByDto_flat();
-    public List<OrderQueryDto> orderV6() {
+    public List<OrderQueryDto> orderV6( @RequestParam(value="afterOrderId", required=false) Long afterOrderId
+                                      , @RequestParam(value="limit", required=false) Integer limit
+                                      , HttpServletResponse response
+                                      ) {
+
+        if (limit == null) {
+            return OrderFlatAssembler.assemble(orderQueryRepository.findAllByDto_flat());
+        }
+
+        CursorPage<OrderQueryDto> page = orderQueryRepository.findAllByDto_flat(afterOrderId, limit);
+        NextCursorHeader.write(response, page);
+        return page.getData();
+    }
+
+
+    /**
+     * 주문 상세: 회원/배송/주문상품/상품을 쿼리 1번으로 조회해서 조립한다.
+     *          조립된 결과는 캐시해 두고 주문 취소/배송상태 변경 시 무효화한다.
+     *          (배송조회 화면처럼 같은 주문을 반복 조회하는 경우 DB 를 거치지 않는다)
+     * */
+    @GetMapping("/api/orders/{id}")
+    public ResponseEntity<OrderQueryDto> orderDetail(@PathVariable("id") Long id) {
+        OrderQueryDto order = orderQueryService.findOrderDetail(id);
+        if (order == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(order);
+    }
 
-        List<OrderFlatDto> flats = orderQueryRepository.findAllByDto_flat();
 
-        return flats.stream()
-                .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(), o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
-                        mapping(o -> new OrderItemQueryDto(o.getOrderId(), o.getItemName(), o.getOrderPrice(), o.getCount()), toList())
-                )).entrySet().stream()
-                .map(e -> new OrderQueryDto(e.getKey().getOrderId(), e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(), e.getKey().getAddress(), e.getValue()))
-                .collect(toList());
+    /**
+     * 주문 내보내기: NDJSON (한 줄에 주문 하나)
+     *             전체를 List 로 만든 뒤 직렬화하지 않고, 스트림으로 읽으면서 한 주문씩 바로 응답에 쓴다.
+     *             주문 수가 늘어도 힙 사용량은 일정하다.
+     * */
+    @GetMapping(value = "/api/orders/export", produces = NDJSON)
+    public void exportOrders(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+
+        try (JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream(), JsonEncoding.UTF8)) {
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            orderQueryService.exportOrders(order -> {
+                try {
+                    generator.writeObject(order);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeRaw('\n');
+        }
+    }
+
+
+    /**
+     * 대량 주문: 한 요청에 최대 1000건
+     *          청크 단위 트랜잭션으로 저장하고, 재고부족 등 실패한 주문이 있어도 나머지는 저장한다.
+     *          결과는 요청 순서(index)대로 주문번호 또는 실패사유를 돌려준다.
+     * */
+    @PostMapping("/api/orders/batch")
+    public BatchOrderResponse orderBatch(@RequestBody @Valid BatchOrderRequest request) {
+        List<BulkOrderRequest> requests = request.getOrders().stream()
+                .map(o -> new BulkOrderRequest(o.getMemberId(), o.getItemId(), o.getCount()))
+                .collect(Collectors.toList());
+        return new BatchOrderResponse(bulkOrderService.order(requests));
+    }
+
+    @Data
+    static class BatchOrderRequest {
+        @NotEmpty
+        @Size(max = 1000)
+        private List<@Valid BatchOrderLine> orders;
+    }
+
+    @Data
+    static class BatchOrderLine {
+        @NotNull private Long memberId;
+        @NotNull private Long itemId;
+        @Min(1) private int count;
+    }
+
+    @Getter
+    static class BatchOrderResponse {
+        private final int succeeded;
+        private final int failed;
+        private final List<BulkOrderResult> results;
+
+        BatchOrderResponse(List<BulkOrderResult> results) {
+            this.succeeded = (int) results.stream().filter(BulkOrderResult::isSuccess).count();
+            this.failed = results.size() - succeeded;
+            this.results = results;
+        }
+    }
+
+
+    /**
+     * 장바구니 주문: 여러 상품을 주문 1건, 트랜잭션 1개로
+     *          Idempotency-Key 헤더가 있으면 같은 키로 재시도해도 처음 주문번호를 돌려준다.
+     *          같은 키로 다른 주문(회원, 상품, 수량)을 보내면 422.
+     * */
+    @PostMapping("/api/orders")
+    public CreateOrderResponse createOrder(@RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                           @RequestBody @Valid CreateOrderRequest request) {
+        List<OrderLine> lines = request.getLines().stream()
+                .map(l -> new OrderLine(l.getItemId(), l.getCount()))
+                .collect(Collectors.toList());
+        return new CreateOrderResponse(orderIdempotency.execute(idempotencyKey,
+                OrderIdempotency.fingerprint(request.getMemberId(), lines),
+                () -> orderService.order(request.getMemberId(), lines)));
+    }
+
+    @Data
+    static class CreateOrderRequest {
+        @NotNull private Long memberId;
+        @NotEmpty
+        @Size(max = 100)
+        private List<@Valid CreateOrderLine> lines;
+    }
+
+    @Data
+    static class CreateOrderLine {
+        @NotNull private Long itemId;
+        @Min(1) private int count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CreateOrderResponse {
+        private Long orderId;
+    }
+
+
+    /**
+     * 일괄 취소: 한 요청에 최대 10000건, 트랜잭션 1개
+     *          이미 취소, 배송완료, 없는 주문은 skipped 로 돌려준다.
+     * */
+    @PostMapping("/api/orders/cancel")
+    public CancelOrdersResponse cancelOrders(@RequestBody @Valid CancelOrdersRequest request) {
+        List<Long> cancelled = orderService.cancelOrders(request.getOrderIds());
+        Set<Long> cancelledIds = new HashSet<>(cancelled);
+        List<Long> skipped = request.getOrderIds().stream()
+                .distinct()
+                .filter(id -> !cancelledIds.contains(id))
+                .collect(Collectors.toList());
+        return new CancelOrdersResponse(cancelled, skipped);
+    }
+
+    @Data
+    static class CancelOrdersRequest {
+        @NotEmpty
+        @Size(max = 10000)
+        private List<@NotNull Long> orderIds;
+    }
 
+    @Data
+    @AllArgsConstructor
+    static class CancelOrdersResponse {
+        private List<Long> cancelled;
+        private List<Long> skipped;
     }
 
 }
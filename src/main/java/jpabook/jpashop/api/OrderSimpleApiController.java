@@ -6,11 +6,14 @@ import jpabook.jpashop.domain.OrderStatus;
 import jpabook.jpashop.repository.*;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.service.OrderService;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletResponse;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -29,6 +32,7 @@ import static java.util.stream.Collectors.toList;
 @RequiredArgsConstructor
 public class OrderSimpleApiController {
     private final OrderRepository orderRepository;
+    private final OrderService orderService;
     private final OrderSimpleQueryRepository orderSimpleQueryRepository; //의존관계 주입
 
 
@@ -38,8 +42,13 @@ public class OrderSimpleApiController {
      * - 양방향 관계 문제 발생 -> @JsonIgnore
      */
     @GetMapping("/api/v1/simple-orders")
-    public List<Order> ordersV1() {
-        List<Order> all = orderRepository.findAllByString(new OrderSearch());
+    public List<Order> ordersV1(@RequestParam(value = "cursor", required = false) String cursor,
+                                @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                HttpServletResponse response) {
+        CursorPage<Order> page = orderService.findOrders(new OrderSearch(), OrderCursor.decode(cursor), limit, FetchPlan.ORDER_SUMMARY);
+        NextCursorHeader.write(response, page);
+
+        List<Order> all = page.getData();
         for (Order order : all) {
             order.getMember().getName(); //Lazy 강제 초기화
             order.getDelivery().getAddress(); //Lazy 강제 초기화
@@ -51,10 +60,11 @@ public class OrderSimpleApiController {
     /**
      * V2. 엔티티를 조회해서 DTO로 변환(fetch join 사용X)
      * - 단점: 지연로딩으로 쿼리 N번 호출
+     * - fetch plan(ORDER_SUMMARY) 으로 회원, 배송을 함께 조회해서 쿼리 1번
      */
     @GetMapping("/api/v2/simple-orders")
     public List<SimpleOrderDto> ordersV2() {
-        List<Order> orders = orderRepository.findAll();
+        List<Order> orders = orderService.findOrders(FetchPlan.ORDER_SUMMARY);
         List<SimpleOrderDto> result = orders.stream()
                 .map(o -> new SimpleOrderDto(o))
                 .collect(toList());
@@ -78,6 +88,20 @@ public class OrderSimpleApiController {
     }
 
 
+    /**
+     * V3.1 키셋(seek) 페이징 + fetch join
+     * - 마지막 (orderDate, id) 커서 이후부터 조회하므로 깊은 페이지도 일정한 속도
+     * - 응답의 nextCursor 가 null 이면 마지막 페이지
+     */
+    @GetMapping("/api/v3.1/simple-orders")
+    public CursorPage<SimpleOrderDto> ordersV3_cursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return orderRepository.findAllWithMemberDelivery(OrderCursor.decode(cursor), limit)
+                .map(o -> new SimpleOrderDto(o));
+    }
+
+
     @Data
     static class SimpleOrderDto {
 
@@ -99,6 +123,7 @@ public class OrderSimpleApiController {
 
     /**
      * 4. 바로 DTO로 조회하는 기능
+     *    주문/취소/회원 이름변경 시 함께 갱신되는 order_summary 한 테이블만 읽는다. (조인 없음)
      * */
     @GetMapping("/api/v4/simple-orders")
     public List<OrderSimpleQueryDto> ordersV4() {
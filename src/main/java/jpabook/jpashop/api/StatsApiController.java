@@ -0,0 +1,119 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.datasource.DataSourceRouteStats;
+import jpabook.jpashop.monitoring.EndpointMetrics;
+import jpabook.jpashop.repository.MemberNameBloomFilter;
+import jpabook.jpashop.repository.OrderSearchQueries;
+import jpabook.jpashop.repository.order.query.OrderDetailCache;
+import jpabook.jpashop.repository.support.ChunkedInQueryExecutor;
+import jpabook.jpashop.repository.support.SecondLevelCacheStats;
+import jpabook.jpashop.repository.support.TotalCountCache;
+import jpabook.jpashop.service.OrderIdempotency;
+import jpabook.jpashop.stock.StockReservationLedger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 성능 관련 내부 지표 조회
+ */
+@RestController
+@RequiredArgsConstructor
+public class StatsApiController {
+
+    private final ChunkedInQueryExecutor chunkedInQueryExecutor;
+    private final OrderSearchQueries orderSearchQueries;
+    private final SecondLevelCacheStats secondLevelCacheStats;
+    private final OrderDetailCache orderDetailCache;
+    private final TotalCountCache totalCountCache;
+    private final ObjectProvider<DataSourceRouteStats> dataSourceRouteStats;
+    private final EndpointMetrics endpointMetrics;
+    private final StockReservationLedger stockLedger;
+    private final OrderIdempotency orderIdempotency;
+    private final MemberNameBloomFilter memberNameBloomFilter;
+
+    /**
+     * IN 절 청크 조회: 청크 수, 청크별 소요시간
+     */
+    @GetMapping("/api/stats/in-query")
+    public ChunkedInQueryExecutor.Stats inQuery() {
+        return chunkedInQueryExecutor.stats();
+    }
+
+    /**
+     * 주문 검색 쿼리: 조건 조합별 쿼리 재사용(hit) / 생성(miss)
+     */
+    @GetMapping("/api/stats/order-search")
+    public OrderSearchQueries.Stats orderSearch() {
+        return orderSearchQueries.stats();
+    }
+
+    /**
+     * 2차 캐시: 영역별 hit / miss / eviction
+     */
+    @GetMapping("/api/stats/cache")
+    public List<SecondLevelCacheStats.RegionStats> cache() {
+        return secondLevelCacheStats.regions();
+    }
+
+    /**
+     * 주문 상세 캐시
+     */
+    @GetMapping("/api/stats/order-detail-cache")
+    public OrderDetailCache.Stats orderDetailCache() {
+        return orderDetailCache.stats();
+    }
+
+    /**
+     * 전체 건수 캐시
+     */
+    @GetMapping("/api/stats/total-count")
+    public TotalCountCache.Stats totalCount() {
+        return totalCountCache.stats();
+    }
+
+    /**
+     * DataSource 경로(primary / replica)별 커넥션 획득, 사용 시간 (라우팅을 켰을 때만)
+     */
+    @GetMapping("/api/stats/datasource")
+    public List<DataSourceRouteStats.RouteStats> datasource() {
+        DataSourceRouteStats stats = dataSourceRouteStats.getIfAvailable();
+        return stats == null ? Collections.emptyList() : stats.routes();
+    }
+
+    /**
+     * 엔드포인트별 요청당 SQL 수, 조회 로우 수, 로딩 엔티티 수, 할당량
+     */
+    @GetMapping("/api/stats/requests")
+    public List<EndpointMetrics.EndpointStats> requests() {
+        return endpointMetrics.endpoints();
+    }
+
+    /**
+     * 재고 예약 원장: 예약 / 확정 / 만료, 반영 대기 확정 기록 수
+     */
+    @GetMapping("/api/stats/stock-ledger")
+    public StockReservationLedger.Stats stockLedger() {
+        return stockLedger.stats();
+    }
+
+    /**
+     * 주문 멱등키: LRU / 키 테이블 / 처리 중 합치기로 응답한 수
+     */
+    @GetMapping("/api/stats/idempotency")
+    public OrderIdempotency.Stats idempotency() {
+        return orderIdempotency.stats();
+    }
+
+    /**
+     * 회원 이름 Bloom filter: DB 조회 없이 통과한 가입 수, 채워진 비율
+     */
+    @GetMapping("/api/stats/member-name-filter")
+    public MemberNameBloomFilter.Stats memberNameFilter() {
+        return memberNameBloomFilter.stats();
+    }
+}
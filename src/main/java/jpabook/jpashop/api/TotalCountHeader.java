@@ -0,0 +1,18 @@
+package jpabook.jpashop.api;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 응답 본문을 바꿀 수 없는 (구버전) API 에서 전체 건수를 헤더로 전달한다.
+ */
+final class TotalCountHeader {
+
+    static final String NAME = "X-Total-Count";
+
+    private TotalCountHeader() {
+    }
+
+    static void write(HttpServletResponse response, long totalCount) {
+        response.setHeader(NAME, String.valueOf(totalCount));
+    }
+}
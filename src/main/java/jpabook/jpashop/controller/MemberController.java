@@ -2,6 +2,8 @@ package jpabook.jpashop.controller;
 
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.CursorPage;
+import jpabook.jpashop.repository.member.query.MemberListDto;
 import jpabook.jpashop.service.MemberService;
 import jpabook.jpashop.web.MemberForm;
 import lombok.RequiredArgsConstructor;
@@ -10,9 +12,9 @@ import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import javax.validation.Valid;
-import java.util.List;
 
 @Controller
 @RequiredArgsConstructor
@@ -44,9 +46,14 @@ public class MemberController {
     }
 
     @GetMapping("/members")
-    public String list(Model model) {
-        List<Member> members = memberService.findMembers();
-        model.addAttribute("members", members);
+    public String list(@RequestParam(value = "name", required = false) String name,
+                       @RequestParam(value = "cursor", required = false) String cursor,
+                       @RequestParam(value = "limit", defaultValue = "100") int limit,
+                       Model model) {
+        CursorPage<MemberListDto> members = memberService.findMemberPage(name, cursor, limit);
+        model.addAttribute("members", members.getData());
+        model.addAttribute("nextCursor", members.getNextCursor());
+        model.addAttribute("name", name);
         return "members/memberList";
     }
 
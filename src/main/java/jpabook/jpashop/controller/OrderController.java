@@ -3,16 +3,22 @@ package jpabook.jpashop.controller;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.CursorPage;
+import jpabook.jpashop.repository.OrderCursor;
 import jpabook.jpashop.repository.OrderSearch;
 import jpabook.jpashop.service.ItemService;
 import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderIdempotency;
+import jpabook.jpashop.service.OrderLine;
 import jpabook.jpashop.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
 
 @Controller
 @RequiredArgsConstructor
@@ -21,6 +27,7 @@ public class OrderController {
     private final OrderService orderService;
     private final MemberService memberService;
     private final ItemService itemService;
+    private final OrderIdempotency orderIdempotency;
 
     @GetMapping("/order")
     public String createForm(Model model) {
@@ -30,6 +37,7 @@ public class OrderController {
 
         model.addAttribute("members", members);
         model.addAttribute("items", items);
+        model.addAttribute("idempotencyKey", UUID.randomUUID().toString());   // 새로고침/중복 제출 시 같은 키로 들어온다.
 
         return "order/orderForm";
     }
@@ -37,16 +45,23 @@ public class OrderController {
     @PostMapping("/order")
     public String order(@RequestParam("memberId") Long memberId,
                         @RequestParam("itemId") Long itemId,
-                        @RequestParam("count") int count) {
+                        @RequestParam("count") int count,
+                        @RequestParam(value = "idempotencyKey", required = false) String idempotencyKey) {
 
-        orderService.order(memberId, itemId, count);
+        orderIdempotency.execute(idempotencyKey,
+                OrderIdempotency.fingerprint(memberId, Collections.singletonList(new OrderLine(itemId, count))),
+                () -> orderService.order(memberId, itemId, count));
         return "redirect:/orders";
     }
 
     @GetMapping("/orders")
-    public String orderList(@ModelAttribute("orderSearch") OrderSearch orderSearch, Model model) {
-        List<Order> orders = orderService.findOrders(orderSearch);
-        model.addAttribute("orders", orders);
+    public String orderList(@ModelAttribute("orderSearch") OrderSearch orderSearch,
+                            @RequestParam(value = "cursor", required = false) String cursor,
+                            @RequestParam(value = "limit", defaultValue = "20") int limit,
+                            Model model) {
+        CursorPage<Order> orders = orderService.findOrders(orderSearch, OrderCursor.decode(cursor), limit);
+        model.addAttribute("orders", orders.getData());
+        model.addAttribute("nextCursor", orders.getNextCursor());
 
         return "order/orderList";
     }
@@ -0,0 +1,71 @@
+package jpabook.jpashop.datasource;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 경로(primary, replica-N)별 커넥션 획득/사용 시간
+ */
+public class DataSourceRouteStats {
+
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+    private static class Route {
+        private final LongAdder connections = new LongAdder();
+        private final LongAdder acquireNanos = new LongAdder();
+        private final LongAdder heldNanos = new LongAdder();
+        private final LongAccumulator maxHeldNanos = new LongAccumulator(Math::max, 0);
+        private volatile boolean healthy = true;
+    }
+
+    private Route route(String name) {
+        return routes.computeIfAbsent(name, k -> new Route());
+    }
+
+    void acquired(String name, long nanos) {
+        Route route = route(name);
+        route.connections.increment();
+        route.acquireNanos.add(nanos);
+    }
+
+    void released(String name, long nanos) {
+        Route route = route(name);
+        route.heldNanos.add(nanos);
+        route.maxHeldNanos.accumulate(nanos);
+    }
+
+    void health(String name, boolean healthy) {
+        route(name).healthy = healthy;
+    }
+
+    public List<RouteStats> routes() {
+        List<RouteStats> result = new ArrayList<>();
+        routes.forEach((name, r) -> {
+            long connections = r.connections.sum();
+            result.add(new RouteStats(name, r.healthy, connections,
+                    connections == 0 ? 0 : r.acquireNanos.sum() / connections / 1000,
+                    connections == 0 ? 0 : r.heldNanos.sum() / connections / 1000,
+                    r.maxHeldNanos.get() / 1000));
+        });
+        result.sort((a, b) -> a.getRoute().compareTo(b.getRoute()));
+        return result;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class RouteStats {
+        private String route;
+        private boolean healthy;
+        private long connections;
+        private long avgAcquireMicros;   // 커넥션 획득
+        private long avgHeldMicros;      // 획득 ~ close (트랜잭션 길이)
+        private long maxHeldMicros;
+    }
+}
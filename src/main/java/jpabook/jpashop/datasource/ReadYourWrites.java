@@ -0,0 +1,44 @@
+package jpabook.jpashop.datasource;
+
+/**
+ * 쓰기 직후 읽기(read-your-writes)를 primary 로 고정하는 스레드 범위
+ *
+ *   - 요청 헤더로 처음부터 고정하거나 (ReadYourWritesFilter)
+ *   - 범위 안에서 쓰기 트랜잭션이 한 번이라도 primary 를 쓰면 그 뒤의 읽기도 primary 로 간다.
+ *     (복제 지연 때문에 방금 쓴 데이터가 replica 에 아직 없을 수 있다)
+ *   - 범위 밖(스케줄러 등)에서는 고정하지 않는다.
+ */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    private static class Scope {
+        private boolean pinned;
+    }
+
+    public static void begin(boolean pinned) {
+        Scope scope = new Scope();
+        scope.pinned = pinned;
+        CURRENT.set(scope);
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    public static boolean isPinned() {
+        Scope scope = CURRENT.get();
+        return scope != null && scope.pinned;
+    }
+
+    /** primary 에 쓰기가 일어났다. */
+    static void wrote() {
+        Scope scope = CURRENT.get();
+        if (scope != null) {
+            scope.pinned = true;
+        }
+    }
+}
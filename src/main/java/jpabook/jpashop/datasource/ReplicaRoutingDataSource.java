@@ -0,0 +1,180 @@
+package jpabook.jpashop.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * readOnly 트랜잭션은 replica 로, 나머지는 primary 로 보내는 DataSource
+ *
+ *   - replica 는 라운드로빈으로 고르고, 헬스체크에 실패한 replica 는 건너뛴다.
+ *   - 쓸 수 있는 replica 가 없거나 read-your-writes 로 고정된 스레드는 primary.
+ *   - 트랜잭션 readOnly 여부는 트랜잭션 시작 후에 정해지므로
+ *     반드시 LazyConnectionDataSourceProxy 로 감싸서 첫 쿼리 시점에 커넥션을 얻어야 한다.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    public static final String PRIMARY = "primary";
+
+    private final List<String> replicas = new ArrayList<>();
+    private final Map<String, DataSource> targets = new HashMap<>();
+    private final Map<String, Boolean> healthy = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final DataSourceRouteStats stats;
+    private final ScheduledExecutorService healthChecker;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicaDataSources,
+                                    DataSourceRouteStats stats, long healthCheckIntervalMs) {
+        this.stats = stats;
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicaDataSources.size(); i++) {
+            String name = "replica-" + i;
+            replicas.add(name);
+            targets.put(name, replicaDataSources.get(i));
+            healthy.put(name, Boolean.TRUE);
+        }
+        setTargetDataSources(new HashMap<>(targets));
+        setDefaultTargetDataSource(primary);
+
+        if (healthCheckIntervalMs > 0 && !replicas.isEmpty()) {
+            healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "replica-health-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            healthChecker.scheduleWithFixedDelay(this::checkHealth,
+                    healthCheckIntervalMs, healthCheckIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            healthChecker = null;
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                ReadYourWrites.wrote();
+            }
+            return PRIMARY;
+        }
+        if (ReadYourWrites.isPinned()) {
+            return PRIMARY;
+        }
+        return nextHealthyReplica();
+    }
+
+    private String nextHealthyReplica() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            String name = replicas.get((start + i) % size);
+            if (healthy.get(name)) {
+                return name;
+            }
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        String route = (String) determineCurrentLookupKey();
+        long start = System.nanoTime();
+        Connection connection = targets.get(route).getConnection();
+        long acquired = System.nanoTime();
+        stats.acquired(route, acquired - start);
+        return timed(connection, route, acquired);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        String route = (String) determineCurrentLookupKey();
+        long start = System.nanoTime();
+        Connection connection = targets.get(route).getConnection(username, password);
+        long acquired = System.nanoTime();
+        stats.acquired(route, acquired - start);
+        return timed(connection, route, acquired);
+    }
+
+    /**
+     * close 될 때 커넥션 사용 시간을 기록한다.
+     */
+    private Connection timed(Connection target, String route, long acquired) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && !target.isClosed()) {
+                        stats.released(route, System.nanoTime() - acquired);
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    /**
+     * 헬스체크 (상태가 바뀔 때만 로그)
+     */
+    void checkHealth() {
+        for (String name : replicas) {
+            boolean ok;
+            try (Connection connection = targets.get(name).getConnection()) {
+                ok = connection.isValid(1);
+            } catch (SQLException | RuntimeException e) {
+                ok = false;
+            }
+            if (healthy.put(name, ok) != ok) {
+                log.warn("replica {} is {}", name, ok ? "back" : "down, routing reads to primary");
+            }
+            stats.health(name, ok);
+        }
+    }
+
+    /**
+     * 헬스체크를 멈추고 커넥션 풀을 닫는다.
+     */
+    @Override
+    public void destroy() throws Exception {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        for (DataSource target : targets.values()) {
+            if (target instanceof AutoCloseable) {
+                ((AutoCloseable) target).close();
+            }
+        }
+    }
+
+    /**
+     * 첫 쿼리 시점에 커넥션을 얻는 프록시 (빈으로 등록할 DataSource)
+     */
+    public static class Lazy extends LazyConnectionDataSourceProxy implements DisposableBean {
+
+        public Lazy(ReplicaRoutingDataSource target) {
+            super(target);
+        }
+
+        @Override
+        public void destroy() throws Exception {
+            ((ReplicaRoutingDataSource) obtainTargetDataSource()).destroy();
+        }
+    }
+}
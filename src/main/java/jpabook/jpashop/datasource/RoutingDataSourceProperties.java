@@ -0,0 +1,29 @@
+package jpabook.jpashop.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * jpashop.datasource.routing.*
+ *   primary 는 spring.datasource 를 그대로 쓰고, 여기에는 replica 만 적는다.
+ */
+@Getter @Setter
+@ConfigurationProperties("jpashop.datasource.routing")
+public class RoutingDataSourceProperties {
+
+    private boolean enabled;
+    private long healthCheckIntervalMs = 5000;
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Getter @Setter
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
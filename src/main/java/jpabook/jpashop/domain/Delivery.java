@@ -1,14 +1,17 @@
 package jpabook.jpashop.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import jpabook.jpashop.repository.order.query.OrderDetailCacheListener;
 import lombok.Getter;
 import lombok.Setter;
 
 import javax.persistence.*;
 
 @Entity @Getter @Setter
+@EntityListeners(OrderDetailCacheListener.class)   // 배송상태 변경 시 주문 상세 캐시 무효화
 public class Delivery {
-    @Id @GeneratedValue
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "delivery_seq")
+    @SequenceGenerator(name = "delivery_seq", sequenceName = "delivery_seq", allocationSize = 50)
     @Column(name="delivery_id")
     private Long id;
 
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
@@ -11,9 +13,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity @Getter @Setter
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "member")   // 2차 캐시
+@Table(name = "member", uniqueConstraints =
+        @UniqueConstraint(name = Member.UNIQUE_NAME, columnNames = "name"))   // 동시 가입 시 중복 이름의 최종 판단
 public class Member {
 
-    @Id @GeneratedValue
+    public static final String UNIQUE_NAME = "uk_member_name";
+
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq")
+    @SequenceGenerator(name = "member_seq", sequenceName = "member_seq", allocationSize = 50)
     @Column(name = "member_id")
     private Long id;
 
@@ -3,10 +3,12 @@ package jpabook.jpashop.domain;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.fasterxml.jackson.databind.deser.SettableBeanProperty;
+import jpabook.jpashop.repository.order.query.OrderDetailCacheListener;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.Hibernate;
 import org.hibernate.proxy.pojo.bytebuddy.ByteBuddyInterceptor;
 
 import javax.persistence.*;
@@ -18,8 +20,18 @@ import java.util.List;
 @Entity @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)  // 무분별하게 생성자를 만드는 것을 방지.
 @Table(name="orders")
+@EntityListeners(OrderDetailCacheListener.class)   // 변경 시 주문 상세 캐시 무효화
+@NamedEntityGraphs({                                 // 조회 fetch plan (FetchPlan)
+        @NamedEntityGraph(name = "Order.summary", attributeNodes = {
+                @NamedAttributeNode("member"),
+                @NamedAttributeNode("delivery")}),
+        @NamedEntityGraph(name = "Order.items", attributeNodes = {
+                @NamedAttributeNode(value = "orderItems", subgraph = "orderItem")},
+                subgraphs = @NamedSubgraph(name = "orderItem", attributeNodes = @NamedAttributeNode("item")))
+})
 public class Order {
-    @Id @GeneratedValue
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -48,7 +60,10 @@ public class Order {
      * */
     public void setMember(Member member) {
         this.member = member;
-        member.getOrders().add(this);
+        // 아직 로딩되지 않은 회원의 주문 목록은 초기화하지 않는다. (주문할 때마다 회원의 전체 주문을 읽게 됨)
+        if (Hibernate.isInitialized(member.getOrders())) {
+            member.getOrders().add(this);
+        }
     }
 
     public void addOrderItem(OrderItem orderItem) {
@@ -0,0 +1,45 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 주문 요청 멱등키 (Idempotency-Key 헤더)
+ *   - 키가 PK 이므로 같은 키로 두 번 저장하면 두 번째 트랜잭션은 실패하고 주문도 함께 롤백된다.
+ *   - 주문과 같은 트랜잭션에서 저장한다.
+ *   - 요청 지문(회원 + 주문 줄)을 함께 저장해서, 같은 키로 다른 주문이 오면 거절한다.
+ */
+@Entity @Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Table(name = "order_idempotency_key", indexes = @Index(name = "idx_order_idempotency_key_created", columnList = "created_at"))
+public class OrderIdempotencyKey {
+
+    public static final int MAX_LENGTH = 100;
+    public static final int FINGERPRINT_LENGTH = 64;
+
+    @Id
+    @Column(name = "idempotency_key", length = MAX_LENGTH)
+    private String key;
+
+    @Column(name = "request_fingerprint", length = FINGERPRINT_LENGTH, nullable = false)
+    private String fingerprint;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public static OrderIdempotencyKey of(String key, String fingerprint, Long orderId) {
+        OrderIdempotencyKey idempotencyKey = new OrderIdempotencyKey();
+        idempotencyKey.key = key;
+        idempotencyKey.fingerprint = fingerprint;
+        idempotencyKey.orderId = orderId;
+        idempotencyKey.createdAt = LocalDateTime.now();
+        return idempotencyKey;
+    }
+}
@@ -12,7 +12,8 @@ import javax.persistence.*;
 @Entity @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class OrderItem {
-    @Id @GeneratedValue
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq")
+    @SequenceGenerator(name = "order_item_seq", sequenceName = "order_item_seq", allocationSize = 50)
     @Column(name="order_item_id")
     private Long id;
 
@@ -39,13 +40,28 @@ public class OrderItem {
      * 주문상품   -  생성 메소드
      * */
     public static OrderItem createOrderItem(Item item, int orderPrice, int count) {
+        OrderItem orderItem = of(item, orderPrice, count);
+
+        // 주문한 수량 만큼 재고수량을 빼준다.
+        item.removeStock(count);
+        return orderItem;
+    }
+
+    /**
+     * 주문상품   -  생성 메소드 (재고는 이미 DB 에서 차감됨)
+     *   사본 재고는 거부 없이 맞추기만 한다.
+     * */
+    public static OrderItem createDeductedOrderItem(Item item, int orderPrice, int count) {
+        OrderItem orderItem = of(item, orderPrice, count);
+        item.syncRemovedStock(count);
+        return orderItem;
+    }
+
+    private static OrderItem of(Item item, int orderPrice, int count) {
         OrderItem orderItem = new OrderItem();
         orderItem.setItem(item);
         orderItem.setOrderPrice(orderPrice);
         orderItem.setCount(count);
-
-        // 주문한 수량 만큼 재고수량을 빼준다.
-        item.removeStock(count);
         return orderItem;
     }
 
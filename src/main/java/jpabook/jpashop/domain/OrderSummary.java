@@ -0,0 +1,57 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 주문 목록 조회 전용 모델 (CQRS 읽기 모델)
+ *   - orders, member, delivery 를 매번 조인하지 않도록 목록에 필요한 값만 한 테이블에 모아 둔다.
+ *   - 주문/취소/회원 이름변경과 같은 트랜잭션에서 함께 갱신한다.
+ *   - 어긋나면 OrderSummaryRepository.rebuild() 로 원본 테이블에서 다시 채운다.
+ */
+@Entity @Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Table(name = "order_summary", indexes = {
+        @Index(name = "idx_order_summary_order_date", columnList = "order_date, order_id"),
+        @Index(name = "idx_order_summary_member", columnList = "member_id")
+})
+public class OrderSummary {
+
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;           // 주문ID 를 그대로 사용
+
+    @Column(name = "member_id")
+    private Long memberId;
+    private String memberName;
+
+    private LocalDateTime orderDate;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    @Embedded
+    private Address address;        // 배송지
+
+    /**
+     * 주문 생성 시점의 요약 생성
+     * */
+    public static OrderSummary of(Order order) {
+        OrderSummary summary = new OrderSummary();
+        summary.orderId = order.getId();
+        summary.memberId = order.getMember().getId();
+        summary.memberName = order.getMember().getName();
+        summary.orderDate = order.getOrderDate();
+        summary.status = order.getStatus();
+
+        Address address = order.getDelivery().getAddress();
+        if (address != null) {
+            summary.address = new Address(address.getCity(), address.getStreet(), address.getZipcode());
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,40 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 재고 확정 기록 (write-behind 저널)
+ *   - 예약 원장(StockReservationLedger)을 켜면 주문 트랜잭션은 item 행을 바꾸지 않고 여기에 한 줄만 남긴다.
+ *   - 모아서 item.stock_quantity 에 반영한 뒤 지운다. 남아 있는 행 = 아직 반영 안 된 확정분.
+ *   - quantity 가 음수면 재고 복구(주문 취소)
+ */
+@Entity @Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Table(name = "stock_confirmation", indexes = @Index(name = "idx_stock_confirmation_item", columnList = "item_id"))
+public class StockConfirmation {
+
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_confirmation_seq")
+    @SequenceGenerator(name = "stock_confirmation_seq", sequenceName = "stock_confirmation_seq", allocationSize = 50)
+    @Column(name = "stock_confirmation_id")
+    private Long id;
+
+    @Column(name = "item_id", nullable = false)
+    private Long itemId;
+
+    private int quantity;           // 차감할 수량 (음수면 복구)
+
+    private LocalDateTime createdAt;
+
+    public static StockConfirmation of(Long itemId, int quantity) {
+        StockConfirmation confirmation = new StockConfirmation();
+        confirmation.itemId = itemId;
+        confirmation.quantity = quantity;
+        confirmation.createdAt = LocalDateTime.now();
+        return confirmation;
+    }
+}
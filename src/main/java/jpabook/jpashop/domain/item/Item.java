@@ -4,6 +4,8 @@ import jpabook.jpashop.domain.Category;
 import jpabook.jpashop.exception.NotEnoughStockException;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -12,14 +14,17 @@ import java.util.List;
 @Entity @Getter @Setter
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)    // 상속관계 매핑전략에서 부모 클래스에서 생성전략 설정. SINGLE_TABLE/TABLE_PER_CLASS/JOINED
 @DiscriminatorColumn(name="DTYPE")                       // 구분코드값 매핑 Album=A, Book=B, Movie=M
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "item")   // 2차 캐시: 하위 타입(Book/Album/Movie)도 같은 영역을 사용
 public abstract class Item {                             // 구현체를 가져가므로 추상클래스로 만들어야 함??!!
 
-    @Id @GeneratedValue
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq")
+    @SequenceGenerator(name = "item_seq", sequenceName = "item_seq", allocationSize = 50)
     @Column(name="item_id")
     private Long id;
 
     private String name;        // 상품이름
     private int price;          // 상품가격
+    @Column(updatable = false)  // 재고는 ItemStockRepository 의 조건부 update 로만 바꾼다. (여기 값은 사본)
     private int stockQuantity;  // 상품 재고수량
 
     @ManyToMany(mappedBy = "items")
@@ -49,4 +54,12 @@ public abstract class Item {                             // 구현체를 가져
         this.stockQuantity = restStock;
     }
 
+    /**
+     * DB 에서 이미 차감한 재고를 사본에 반영한다. (재고 판정은 ItemStockRepository 의 조건부 update 가 한다)
+     * 사본이 오래돼서 모자라 보여도 거부하지 않는다.
+     * */
+    public void syncRemovedStock(int quantity) {
+        this.stockQuantity = Math.max(0, this.stockQuantity - quantity);
+    }
+
 }
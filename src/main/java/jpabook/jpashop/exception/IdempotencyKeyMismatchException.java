@@ -0,0 +1,16 @@
+package jpabook.jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 같은 Idempotency-Key 로 다른 주문 내용(회원, 상품, 수량)을 보낸 경우
+ *   처음 주문번호를 돌려주면 다른 장바구니가 주문된 것처럼 보이므로 422 로 거절한다.
+ */
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class IdempotencyKeyMismatchException extends RuntimeException {
+
+    public IdempotencyKeyMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,68 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 엔드포인트("GET /api/v5/orders")별 요청당 평균 / 최대 측정값
+ */
+@Component
+public class EndpointMetrics {
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    private static class Endpoint {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAccumulator maxStatements = new LongAccumulator(Math::max, 0);
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder entities = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+    }
+
+    public void record(String endpoint, RequestMetrics.Snapshot snapshot) {
+        Endpoint e = endpoints.computeIfAbsent(endpoint, k -> new Endpoint());
+        e.requests.increment();
+        e.statements.add(snapshot.getStatements());
+        e.maxStatements.accumulate(snapshot.getStatements());
+        e.rows.add(snapshot.getRows());
+        e.entities.add(snapshot.getEntities());
+        e.allocatedBytes.add(snapshot.getAllocatedBytes());
+    }
+
+    public List<EndpointStats> endpoints() {
+        List<EndpointStats> result = new ArrayList<>();
+        endpoints.forEach((name, e) -> {
+            long requests = Math.max(e.requests.sum(), 1);
+            result.add(new EndpointStats(name, e.requests.sum(),
+                    (double) e.statements.sum() / requests,
+                    e.maxStatements.get(),
+                    (double) e.rows.sum() / requests,
+                    (double) e.entities.sum() / requests,
+                    e.allocatedBytes.sum() / requests / 1024));
+        });
+        result.sort(Comparator.comparing(EndpointStats::getEndpoint));
+        return result;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class EndpointStats {
+        private String endpoint;
+        private long requests;
+        private double avgStatements;
+        private long maxStatements;
+        private double avgRows;
+        private double avgEntities;
+        private long avgAllocatedKb;
+    }
+}
@@ -0,0 +1,98 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 스레드(요청) 단위 SQL 실행 수 / 조회 로우 수 / 로딩 엔티티 수 / 할당 바이트 측정
+ *
+ *   - Scope 를 열면 닫을 때까지 같은 스레드에서 일어난 일을 센다.
+ *   - Scope 는 중첩할 수 있다. (요청 필터 안에서 테스트가 다시 측정하는 경우 등) 열린 Scope 모두에 더한다.
+ *   - 카운터 입력: StatementCounter(Hibernate), ResultSetRowCounter(p6spy), EntityLoadCounter(Hibernate 이벤트)
+ */
+public final class RequestMetrics {
+
+    private static final ThreadLocal<Deque<Scope>> SCOPES = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadMXBean();
+
+    private RequestMetrics() {
+    }
+
+    public static Scope open() {
+        Scope scope = new Scope(allocatedBytes());
+        SCOPES.get().push(scope);
+        return scope;
+    }
+
+    static void statementPrepared() {
+        for (Scope scope : SCOPES.get()) {
+            scope.statements++;
+        }
+    }
+
+    static void rowFetched() {
+        for (Scope scope : SCOPES.get()) {
+            scope.rows++;
+        }
+    }
+
+    static void entityLoaded() {
+        for (Scope scope : SCOPES.get()) {
+            scope.entities++;
+        }
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            return (com.sun.management.ThreadMXBean) bean;
+        }
+        return null;
+    }
+
+    public static class Scope implements AutoCloseable {
+
+        private final long startAllocatedBytes;
+        private long statements;
+        private long rows;
+        private long entities;
+
+        private Scope(long startAllocatedBytes) {
+            this.startAllocatedBytes = startAllocatedBytes;
+        }
+
+        /**
+         * Scope 를 닫고 측정값을 돌려준다.
+         */
+        public Snapshot finish() {
+            SCOPES.get().remove(this);
+            return new Snapshot(statements, rows, entities, allocatedBytes() - startAllocatedBytes);
+        }
+
+        @Override
+        public void close() {
+            finish();
+        }
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Snapshot {
+        private long statements;      // Hibernate 가 준비한 SQL 수
+        private long rows;            // ResultSet 에서 읽은 로우 수
+        private long entities;        // 로딩된 엔티티 수 (2차 캐시 포함)
+        private long allocatedBytes;  // 스레드 힙 할당량 (지원하지 않는 JVM 은 0)
+    }
+}
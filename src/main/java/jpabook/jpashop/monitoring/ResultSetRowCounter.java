@@ -0,0 +1,22 @@
+package jpabook.jpashop.monitoring;
+
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * ResultSet.next() 가 true 를 돌려줄 때마다 센다. (p6spy 가 빈으로 등록된 리스너를 찾아 사용한다)
+ */
+@Component
+public class ResultSetRowCounter extends JdbcEventListener {
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos,
+                                     boolean hasNext, SQLException e) {
+        if (hasNext) {
+            RequestMetrics.rowFetched();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package jpabook.jpashop.repository;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 키셋 페이징 결과
+ *   - limit + 1 건을 조회해서 한 건이 더 있으면 다음 페이지가 있다고 판단한다.
+ *   - nextCursor 가 null 이면 마지막 페이지.
+ */
+@Getter
+public class CursorPage<T> {
+
+    /** 한 페이지 최대 건수 */
+    public static final int MAX_LIMIT = 1000;
+
+    private final int count;
+    private final List<T> data;
+    private final String nextCursor;
+
+    public CursorPage(List<T> data, String nextCursor) {
+        this.count = data.size();
+        this.data = data;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @param rows     limit + 1 건까지 조회한 결과
+     * @param cursorOf 마지막 로우로 다음 페이지 커서 토큰을 만드는 함수
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, String> cursorOf) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> data = new ArrayList<>(rows.subList(0, limit));
+        return new CursorPage<>(data, cursorOf.apply(data.get(limit - 1)));
+    }
+
+    /**
+     * 요청한 limit 을 1 ~ MAX_LIMIT 범위로 맞춘다.
+     */
+    public static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        return new CursorPage<>(data.stream().map(mapper).collect(toList()), nextCursor);
+    }
+}
@@ -0,0 +1,40 @@
+package jpabook.jpashop.repository;
+
+/**
+ * 주문 조회 fetch plan (Order 에 선언한 @NamedEntityGraph 조합)
+ *
+ *   - rootGraph: 루트 쿼리에 fetchgraph 힌트로 적용한다. ToOne(회원, 배송)만 담으므로 페이징이 그대로 DB 에서 된다.
+ *   - collectionGraph: 루트 페이지의 주문들로 두 번째 쿼리를 실행해서 컬렉션(주문상품, 상품)을 채운다.
+ *     컬렉션을 루트 쿼리에 fetch join 하면 페이징이 메모리에서 일어나므로 분리한다.
+ *   - 계획에 없는 연관은 지연로딩으로 남는다. strict 프로필(OSIV 끔)에서는 트랜잭션이 끝난 뒤 컨트롤러나
+ *     응답 직렬화에서 접근하면 바로 실패한다. (조회 트랜잭션 안에서 접근하면 쿼리가 더 나갈 뿐 실패하지 않는다)
+ */
+public enum FetchPlan {
+
+    /** 계획 없음 (지연로딩) */
+    NONE(null, null),
+
+    /** 주문 + 회원 + 배송 : 쿼리 1번 */
+    ORDER_SUMMARY("Order.summary", null),
+
+    /** 주문 + 회원 + 배송 + 주문상품 + 상품 : 쿼리 2번 */
+    ORDER_DETAIL("Order.summary", "Order.items");
+
+    public static final String FETCH_GRAPH = "javax.persistence.fetchgraph";
+
+    private final String rootGraph;
+    private final String collectionGraph;
+
+    FetchPlan(String rootGraph, String collectionGraph) {
+        this.rootGraph = rootGraph;
+        this.collectionGraph = collectionGraph;
+    }
+
+    public String getRootGraph() {
+        return rootGraph;
+    }
+
+    public String getCollectionGraph() {
+        return collectionGraph;
+    }
+}
@@ -1,10 +1,14 @@
 package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.support.ChunkedInQueryExecutor;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -24,8 +28,21 @@ public class ItemRepository {
         return em.find(Item.class, id);
     }
 
+    /**
+     * 상품ID 목록으로 한번에 조회 (IN 1번)
+     */
+    public List<Item> findAllById(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return em.createQuery("select i from Item i where i.id in :ids", Item.class)
+                .setParameter("ids", ChunkedInQueryExecutor.padToPowerOfTwo(new ArrayList<>(ids), Integer.MAX_VALUE))
+                .getResultList();
+    }
+
     public List<Item> findAll() {
         return em.createQuery("select i from Item i", Item.class)
+                .setHint(QueryHints.CACHEABLE, true)   // 쿼리 캐시 (item 테이블이 바뀌면 무효화)
                 .getResultList();
     }
 }
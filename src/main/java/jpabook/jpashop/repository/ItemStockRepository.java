@@ -0,0 +1,97 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.item.Item;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * 재고 엔진: 재고는 DB 에서 조건부 update 한 번으로 바꾼다. (읽고-빼고-쓰기 하지 않는다)
+ *
+ *   update item set stock_quantity = stock_quantity - ? where item_id = ? and stock_quantity >= ?
+ *
+ *   - 동시에 같은 상품을 주문해도 잃어버리는 갱신이나 초과판매가 없다. 0 row 면 재고부족.
+ *   - Item.stockQuantity 는 updatable = false 이므로 변경감지로는 쓰이지 않는다.
+ *     엔티티 값은 화면 표시용 사본이고 차감이 성공한 뒤 Item.syncRemovedStock 으로 맞춰 둔다. (사본으로 주문을 거부하지 않는다)
+ *   - 2차 캐시의 item 영역 전체를 비우지 않도록 query space 를 비우고, 바뀐 상품만 지금 + 커밋 후에 캐시에서 뺀다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ItemStockRepository {
+
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+
+    /**
+     * @return false 면 재고부족 (아무것도 바뀌지 않음)
+     */
+    public boolean decrease(Item item, int quantity) {
+        return execute(item, "update item set stock_quantity = stock_quantity - :quantity" +
+                " where item_id = :id and stock_quantity >= :quantity", quantity) == 1;
+    }
+
+    /**
+     * 재고 복구 (주문 취소, 상품을 조회하지 않는다)
+     */
+    public void increase(Long itemId, int quantity) {
+        execute(itemId, "update item set stock_quantity = stock_quantity + :quantity where item_id = :id", quantity);
+    }
+
+    /**
+     * 재고 덮어쓰기 (상품 수정 화면)
+     */
+    public void overwrite(Item item, int quantity) {
+        execute(item, "update item set stock_quantity = :quantity where item_id = :id", quantity);
+    }
+
+    private int execute(Item item, String sql, int quantity) {
+        flushIfNotInserted(item);
+        return execute(item.getId(), sql, quantity);
+    }
+
+    private int execute(Long itemId, String sql, int quantity) {
+        int rows = em.createNativeQuery(sql)
+                .setParameter("quantity", quantity)
+                .setParameter("id", itemId)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("")   // 자동 flush / 캐시 영역 무효화 안 함
+                .executeUpdate();
+        if (rows > 0) {
+            evictNowAndAfterCommit(itemId);
+        }
+        return rows;
+    }
+
+    /**
+     * 같은 트랜잭션에서 저장한 상품이 아직 insert 전이면 먼저 내보낸다.
+     * (그 외에는 flush 하지 않아서 주문 insert 가 jdbc batch 로 모인다)
+     */
+    private void flushIfNotInserted(Item item) {
+        EntityEntry entry = em.unwrap(SessionImplementor.class).getPersistenceContext().getEntry(item);
+        if (entry != null && !entry.isExistsInDatabase()) {
+            em.flush();
+        }
+    }
+
+    /**
+     * 커밋 전에 다른 트랜잭션이 옛 재고를 캐시에 다시 넣을 수 있으므로 커밋 후에 한 번 더 뺀다.
+     */
+    private void evictNowAndAfterCommit(Long itemId) {
+        emf.getCache().evict(Item.class, itemId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    emf.getCache().evict(Item.class, itemId);
+                }
+            });
+        }
+    }
+}
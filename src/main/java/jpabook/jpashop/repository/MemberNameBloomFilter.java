@@ -0,0 +1,156 @@
+package jpabook.jpashop.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * 회원 이름 Bloom filter (회원가입 중복 이름 검사용)
+ *
+ *   - "없다" 는 확실하고 "있을 수도 있다" 는 오탐(기본 1%)이 있다.
+ *     없으면 DB 조회를 건너뛰고, 있을 수도 있으면 회원ID 하나만 조회해서 확인한다.
+ *   - 비트는 AtomicLongArray 에 CAS 로 켜므로 잠금 없이 동시에 추가/조회한다.
+ *   - 지울 수 없으므로 이름을 바꾸면 옛 이름은 남는다. (오탐이 조금 늘 뿐 틀린 "없다" 는 없다)
+ *   - 기동 완료 시 전체 이름으로 채운다. 준비 전에는 항상 "있을 수도 있다" 로 답한다.
+ *   - 동시 가입 경합은 여기서 막지 않는다. 최종 판단은 member.name 유니크 제약이다.
+ */
+@Slf4j
+@Component
+public class MemberNameBloomFilter {
+
+    private final EntityManager em;
+    private final int bitCount;
+    private final int hashCount;
+    private final AtomicLongArray bits;
+    private volatile boolean ready;
+
+    private final LongAdder negatives = new LongAdder();
+    private final LongAdder maybes = new LongAdder();
+
+    public MemberNameBloomFilter(EntityManager em,
+                                 @Value("${jpashop.member.name-filter.expected-names:1000000}") long expectedNames,
+                                 @Value("${jpashop.member.name-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.em = em;
+        // m = -n ln p / (ln 2)^2, k = m / n * ln 2
+        long m = (long) Math.ceil(-Math.max(1, expectedNames) * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.min(Integer.MAX_VALUE - 63L, Math.max(64, m));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / Math.max(1, expectedNames) * Math.log(2)));
+        this.bits = new AtomicLongArray((bitCount + 63) / 64);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        LongAdder count = new LongAdder();
+        try (Stream<String> names = em.createQuery("select m.name from Member m where m.name is not null", String.class)
+                .getResultStream()) {
+            names.forEach(name -> {
+                put(name);
+                count.increment();
+            });
+        }
+        ready = true;
+        log.info("member name filter ready. names={} bits={} hashes={} elapsed={}ms",
+                count.sum(), bitCount, hashCount, System.currentTimeMillis() - start);
+    }
+
+    public void put(String name) {
+        if (name == null) {
+            return;
+        }
+        long hash = hash(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            set(index(h1 + i * h2));
+        }
+    }
+
+    /**
+     * @return false 면 확실히 없는 이름
+     */
+    public boolean mightContain(String name) {
+        if (!ready || name == null) {
+            maybes.increment();
+            return true;
+        }
+        long hash = hash(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            if (!get(index(h1 + i * h2))) {
+                negatives.increment();
+                return false;
+            }
+        }
+        maybes.increment();
+        return true;
+    }
+
+    private int index(int combined) {
+        return (combined & Integer.MAX_VALUE) % bitCount;
+    }
+
+    private void set(int index) {
+        int word = index >>> 6;
+        long mask = 1L << index;
+        long old;
+        while (((old = bits.get(word)) & mask) == 0) {
+            if (bits.compareAndSet(word, old, old | mask)) {
+                return;
+            }
+        }
+    }
+
+    private boolean get(int index) {
+        return (bits.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * 64bit FNV-1a + murmur3 fmix (상위/하위 32bit 를 두 해시로 나눠 쓴다)
+     */
+    private static long hash(String name) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public Stats stats() {
+        long setBits = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            setBits += Long.bitCount(bits.get(i));
+        }
+        return new Stats(ready, bitCount, hashCount, (double) setBits / bitCount, negatives.sum(), maybes.sum());
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private boolean ready;
+        private int bits;
+        private int hashes;
+        private double fillRatio;     // 켜진 비트 비율 (높을수록 오탐 증가)
+        private long negatives;       // DB 조회 없이 "없다"
+        private long maybes;          // DB 로 확인
+    }
+}
@@ -0,0 +1,193 @@
+package jpabook.jpashop.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * 회원 이름 메모리 인덱스
+ *
+ *   - m.name like '%홍%' 같은 포함 검색은 B-tree 인덱스를 타지 못해 member 전체를 스캔한다.
+ *   - 이름을 2-gram 으로 쪼개 회원ID 집합을 만들어 두고, 포함 검색을 회원ID 집합으로 바꿔준다.
+ *     (한글 이름은 2~4자가 대부분이라 3-gram 보다 2-gram 이 맞다)
+ *   - 전체 이름은 정렬 맵에도 넣어서 접두어 자동완성(typeahead)에 사용한다.
+ *   - 기동 완료 시 전체 이름으로 채우고, 이후에는 회원가입/이름변경 커밋 후에 반영한다.
+ *   - 준비 전이거나 조각이 한 글자면 null 을 돌려준다. (호출하는 쪽은 DB like 검색으로 대체)
+ */
+@Slf4j
+@Component
+public class MemberNameIndex {
+
+    private static final int GRAM = 2;
+
+    private final EntityManager em;
+
+    private final Map<Long, String> names = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> grams = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Set<Long>> sortedNames = new ConcurrentSkipListMap<>();
+    private volatile boolean ready;
+
+    public MemberNameIndex(EntityManager em) {
+        this.em = em;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        try (Stream<Object[]> rows = em.createQuery("select m.id, m.name from Member m", Object[].class)
+                .getResultStream()) {
+            // 기동 중에 먼저 반영된 변경이 더 최신이므로 덮어쓰지 않는다.
+            rows.forEach(row -> putIfAbsent((Long) row[0], (String) row[1]));
+        }
+        ready = true;
+        log.info("member name index ready. members={} grams={} elapsed={}ms", names.size(), grams.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 현재 트랜잭션이 커밋된 후에 반영한다. (롤백되면 반영하지 않음)
+     */
+    public void putAfterCommit(Long memberId, String name) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(memberId, name);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                put(memberId, name);
+            }
+        });
+    }
+
+    public synchronized void put(Long memberId, String name) {
+        remove(memberId);
+        if (name == null) {
+            return;
+        }
+        names.put(memberId, name);
+        String normalized = normalize(name);
+        for (String gram : grams(normalized)) {
+            grams.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(memberId);
+        }
+        sortedNames.computeIfAbsent(normalized, k -> ConcurrentHashMap.newKeySet()).add(memberId);
+    }
+
+    private synchronized void putIfAbsent(Long memberId, String name) {
+        if (!names.containsKey(memberId)) {
+            put(memberId, name);
+        }
+    }
+
+    public synchronized void remove(Long memberId) {
+        String old = names.remove(memberId);
+        if (old == null) {
+            return;
+        }
+        String normalized = normalize(old);
+        for (String gram : grams(normalized)) {
+            removeFrom(grams, gram, memberId);
+        }
+        removeFrom(sortedNames, normalized, memberId);
+    }
+
+    /**
+     * 이름에 fragment 가 포함된 회원ID (대소문자 구분, like 와 같은 결과)
+     *
+     * @return 인덱스로 답할 수 없으면 null
+     */
+    public Set<Long> findIdsContaining(String fragment) {
+        if (!ready || fragment == null || fragment.length() < GRAM) {
+            return null;
+        }
+
+        // 가장 작은 posting 부터 교집합
+        List<Set<Long>> postings = new ArrayList<>();
+        for (String gram : grams(normalize(fragment))) {
+            Set<Long> posting = grams.get(gram);
+            if (posting == null) {
+                return Collections.emptySet();
+            }
+            postings.add(posting);
+        }
+        postings.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        Set<Long> result = new HashSet<>();
+        for (Long id : postings.get(0)) {
+            String name = names.get(id);
+            if (name != null && name.contains(fragment)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 접두어 자동완성 (대소문자 무시)
+     */
+    public List<String> typeahead(String prefix, int limit) {
+        if (prefix == null || prefix.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String from = normalize(prefix);
+        NavigableMap<String, Set<Long>> matches = sortedNames.subMap(from, true, from + Character.MAX_VALUE, true);
+
+        List<String> result = new ArrayList<>();
+        for (Set<Long> ids : matches.values()) {
+            for (Long id : ids) {
+                String name = names.get(id);
+                if (name != null && !result.contains(name)) {
+                    result.add(name);
+                }
+                if (result.size() >= limit) {
+                    return result;
+                }
+            }
+        }
+        return result;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> result = new HashSet<>();
+        if (text.length() < GRAM) {
+            result.add(text);
+            return result;
+        }
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            result.add(text.substring(i, i + GRAM));
+        }
+        return result;
+    }
+
+    private static void removeFrom(Map<String, Set<Long>> index, String key, Long memberId) {
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(memberId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+}
@@ -1,10 +1,14 @@
 package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.support.ChunkedInQueryExecutor;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -31,9 +35,40 @@ public class MemberRepository {
     // 전체회원 조회하기
     public List<Member> findAll() {
         return em.createQuery("select m from Member m", Member.class)
+                .setHint(QueryHints.CACHEABLE, true)   // 쿼리 캐시 (member 테이블이 바뀌면 무효화)
                 .getResultList();
     }
 
+    // 회원ID 목록으로 한번에 조회하기 (IN 1번)
+    public List<Member> findAllById(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return em.createQuery("select m from Member m where m.id in :ids", Member.class)
+                .setParameter("ids", ChunkedInQueryExecutor.padToPowerOfTwo(new ArrayList<>(ids), Integer.MAX_VALUE))
+                .getResultList();
+    }
+
+    // 전체회원 수
+    public long count() {
+        return em.createQuery("select count(m) from Member m", Long.class)
+                .getSingleResult();
+    }
+
+    // 같은 이름의 회원이 있는지 (엔티티 대신 회원ID 하나만 조회)
+    public boolean existsByName(String name) {
+        return !em.createQuery("select m.id from Member m where m.name = :name", Long.class)
+                .setParameter("name", name)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
+    // 쓰기 지연된 insert/update 를 지금 실행 (유니크 제약 위반을 트랜잭션 안에서 받기 위해)
+    public void flush() {
+        em.flush();
+    }
+
     // 회원이름으로 조회하기
     public List<Member> findByName(String name) {
         return em.createQuery("select m from Member m where m.name = :name", Member.class)
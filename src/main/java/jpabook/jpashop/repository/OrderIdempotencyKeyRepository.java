@@ -0,0 +1,32 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.OrderIdempotencyKey;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderIdempotencyKeyRepository {
+
+    private final EntityManager em;
+
+    public void save(OrderIdempotencyKey idempotencyKey) {
+        em.persist(idempotencyKey);
+    }
+
+    /**
+     * 없으면 null
+     */
+    public OrderIdempotencyKey findOne(String key) {
+        return em.find(OrderIdempotencyKey.class, key);
+    }
+
+    public int deleteCreatedBefore(LocalDateTime createdAt) {
+        return em.createQuery("delete from OrderIdempotencyKey k where k.createdAt < :createdAt")
+                .setParameter("createdAt", createdAt)
+                .executeUpdate();
+    }
+}
@@ -1,23 +1,38 @@
 package jpabook.jpashop.repository;
 
+import jpabook.jpashop.domain.DeliveryStatus;
 import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.support.ChunkedInQueryExecutor;
+import org.hibernate.jpa.QueryHints;
 
 import org.springframework.stereotype.Repository;
-import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
-import javax.persistence.criteria.*;
-import java.util.ArrayList;
 import java.util.List;
 
+import static java.util.stream.Collectors.toList;
+
 @Repository
 public class OrderRepository {
 
+    private static final String KEYSET_CONDITION =
+            " (o.orderDate > :cursorDate or (o.orderDate = :cursorDate and o.id > :cursorId))";
+    private static final String KEYSET_ORDER = " order by o.orderDate, o.id";
+
+    private static final OrderSearchQueries.Template<Order> SEARCH =
+            new OrderSearchQueries.Template<>("Order.search", "select o from Order o join o.member m", Order.class);
+
+    private static final OrderSearchQueries.Template<Long> COUNT =
+            new OrderSearchQueries.Template<>("Order.count", "select count(o) from Order o join o.member m", Long.class, false);
+
     private final EntityManager em;
+    private final OrderSearchQueries orderSearchQueries;
 
-    public OrderRepository(EntityManager em) {
+    public OrderRepository(EntityManager em, OrderSearchQueries orderSearchQueries) {
         this.em = em;
+        this.orderSearchQueries = orderSearchQueries;
     }
 
     public void save(Order order) {
@@ -33,72 +48,142 @@ public class OrderRepository {
                 .getResultList();
     }
 
-    public List<Order> findAllByString(OrderSearch orderSearch) {
+    public List<Order> findAll(FetchPlan plan) {
+        return fetch(withPlan(em.createQuery("select o from Order o", Order.class), plan)
+                .getResultList(), plan);
+    }
+
+    /**
+     * 검색 + 키셋 페이징
+     *   - 조건 조합별로 미리 등록해 둔 쿼리에 파라미터만 바인딩한다. (OrderSearchQueries)
+     *   - 정렬: orderDate, id 오름차순
+     *   - limit 은 CursorPage.MAX_LIMIT 을 넘지 않는다. 잘린 결과는 nextCursor 로 이어서 조회한다.
+     */
+    public CursorPage<Order> findAllByString(OrderSearch orderSearch, OrderCursor cursor, int limit) {
+        return findAllByString(orderSearch, cursor, limit, FetchPlan.NONE);
+    }
 
-        String jpql = "select o from Order o join o.member m";
-        boolean isFirstCondition = true;
+    /**
+     * 검색 + 키셋 페이징 + fetch plan
+     *   페이지를 먼저 자른 뒤 잘린 주문에 대해서만 컬렉션을 채운다.
+     */
+    public CursorPage<Order> findAllByString(OrderSearch orderSearch, OrderCursor cursor, int limit, FetchPlan plan) {
+        int pageSize = CursorPage.pageSize(limit);
+        List<Order> orders = withPlan(orderSearchQueries.create(SEARCH, orderSearch, cursor), plan)
+                .setMaxResults(pageSize + 1)
+                .getResultList();
+        CursorPage<Order> page = CursorPage.of(orders, pageSize, o -> OrderCursor.of(o).encode());
+        fetch(page.getData(), plan);
+        return page;
+    }
 
-        //주문 상태 검색
-        if (orderSearch.getOrderStatus() != null) {
-            if (isFirstCondition) {
-                jpql += " where";
-                isFirstCondition = false;
-            } else {
-                jpql += " and";
-            }
-            jpql += " o.status = :status";
+    private <T> TypedQuery<T> withPlan(TypedQuery<T> query, FetchPlan plan) {
+        if (plan.getRootGraph() != null) {
+            query.setHint(FetchPlan.FETCH_GRAPH, em.getEntityGraph(plan.getRootGraph()));
         }
+        return query;
+    }
 
-        //회원 이름 검색
-        if (StringUtils.hasText(orderSearch.getMemberName())) {
-            if (isFirstCondition) {
-                jpql += " where";
-                isFirstCondition = false;
-            } else {
-                jpql += " and";
-            }
-            jpql += " m.name like :name";
+    /**
+     * 이미 조회한 주문들의 컬렉션을 쿼리 한 번으로 채운다. (영속성 컨텍스트의 같은 인스턴스가 초기화된다)
+     */
+    private List<Order> fetch(List<Order> orders, FetchPlan plan) {
+        if (plan.getCollectionGraph() != null && !orders.isEmpty()) {
+            em.createQuery("select distinct o from Order o where o in :orders", Order.class)
+                    .setParameter("orders", orders)
+                    .setHint(FetchPlan.FETCH_GRAPH, em.getEntityGraph(plan.getCollectionGraph()))
+                    .setHint(QueryHints.HINT_PASS_DISTINCT_THROUGH, false)
+                    .getResultList();
         }
+        return orders;
+    }
 
-        TypedQuery<Order> query = em.createQuery(jpql, Order.class)
-                .setMaxResults(1000);
+    /**
+     * 검색조건에 맞는 전체 주문 수
+     */
+    public long count(OrderSearch orderSearch) {
+        return orderSearchQueries.create(COUNT, orderSearch, null).getSingleResult();
+    }
 
-        if (orderSearch.getOrderStatus() != null) {
-            query = query.setParameter("status", orderSearch.getOrderStatus());
-        }
-        if (StringUtils.hasText(orderSearch.getMemberName())) {
-            query = query.setParameter("name", orderSearch.getMemberName());
-        }
+    /**
+     * 취소할 주문 행 잠금 (select ... for update, 주문ID 순)
+     *   주문상태(ORDER)인 주문ID 만 돌려준다.
+     *   같은 주문을 동시에 취소하면 뒤에 온 쪽은 잠금을 기다린 뒤 빠지므로 재고가 두 번 복구되지 않는다.
+     */
+    public List<Long> lockForCancel(List<Long> ids) {
+        List<?> rows = em.createNativeQuery(
+                        "select id from orders where id in (:ids) and status = 'ORDER' order by id for update")
+                .setParameter("ids", ChunkedInQueryExecutor.padToPowerOfTwo(ids, Integer.MAX_VALUE))
+                .getResultList();
+        return rows.stream().map(id -> ((Number) id).longValue()).collect(toList());
+    }
 
-        return query.getResultList();
+    /**
+     * 취소용 조회: 회원, 배송, 주문상품, 상품까지 쿼리 1번
+     */
+    public Order findOneForCancel(Long id) {
+        return em.createQuery(
+                        "select distinct o from Order o" +
+                                " join fetch o.member m" +
+                                " join fetch o.delivery d" +
+                                " join fetch o.orderItems oi" +
+                                " join fetch oi.item i" +
+                                " where o.id = :id", Order.class)
+                .setParameter("id", id)
+                .setHint(QueryHints.HINT_PASS_DISTINCT_THROUGH, false)
+                .getSingleResult();
     }
 
     /**
-     * JPA Criteria
+     * 배송완료(취소 불가)인 주문ID
      */
-    public List<Order> findAllByCriteria(OrderSearch orderSearch) {
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<Order> cq = cb.createQuery(Order.class);
-        Root<Order> o = cq.from(Order.class);
-        Join<Object, Object> m = o.join("member", JoinType.INNER);
-
-        List<Predicate> criteria = new ArrayList<>();
-
-        //주문 상태 검색
-        if (orderSearch.getOrderStatus() != null) {
-            Predicate status = cb.equal(o.get("status"), orderSearch.getOrderStatus());
-            criteria.add(status);
-        }
-        //회원 이름 검색
-        if (StringUtils.hasText(orderSearch.getMemberName())) {
-            Predicate name =
-                    cb.like(m.<String>get("name"), "%" + orderSearch.getMemberName() + "%");
-            criteria.add(name);
-        }
+    public List<Long> findDeliveredIds(List<Long> ids) {
+        return em.createQuery("select o.id from Order o join o.delivery d" +
+                        " where o.id in :ids and d.status = :comp", Long.class)
+                .setParameter("ids", ChunkedInQueryExecutor.padToPowerOfTwo(ids, Integer.MAX_VALUE))
+                .setParameter("comp", DeliveryStatus.COMP)
+                .getResultList();
+    }
+
+    /**
+     * 상품별 주문수량 합: [상품ID, 수량]
+     */
+    public List<Object[]> sumCountByItem(List<Long> ids) {
+        return em.createQuery("select oi.item.id, sum(oi.count) from OrderItem oi" +
+                        " where oi.order.id in :ids group by oi.item.id", Object[].class)
+                .setParameter("ids", ChunkedInQueryExecutor.padToPowerOfTwo(ids, Integer.MAX_VALUE))
+                .getResultList();
+    }
+
+    /**
+     * 회원이름별 주문 수: [회원이름, 주문 수] (전체 건수 캐시 증감용)
+     */
+    public List<Object[]> countByMemberName(List<Long> ids) {
+        return em.createQuery("select m.name, count(o) from Order o join o.member m" +
+                        " where o.id in :ids group by m.name", Object[].class)
+                .setParameter("ids", ChunkedInQueryExecutor.padToPowerOfTwo(ids, Integer.MAX_VALUE))
+                .getResultList();
+    }
 
-        cq.where(cb.and(criteria.toArray(new Predicate[criteria.size()])));
-        TypedQuery<Order> query = em.createQuery(cq).setMaxResults(1000);
-        return query.getResultList();
+    /**
+     * 주문상태 일괄 변경 (update 한 문장, 엔티티 리스너는 호출되지 않는다)
+     */
+    public int updateStatus(List<Long> ids, OrderStatus status) {
+        return em.createQuery("update Order o set o.status = :status where o.id in :ids")
+                .setParameter("status", status)
+                .setParameter("ids", ChunkedInQueryExecutor.padToPowerOfTwo(ids, Integer.MAX_VALUE))
+                .executeUpdate();
+    }
+
+    /**
+     * JPA Criteria (조합별로 만들어 둔 Criteria 트리 재사용, 조건은 findAllByString 과 같다)
+     */
+    public CursorPage<Order> findAllByCriteria(OrderSearch orderSearch, OrderCursor cursor, int limit) {
+        int pageSize = CursorPage.pageSize(limit);
+        List<Order> orders = orderSearchQueries.createCriteria(orderSearch, cursor)
+                .setMaxResults(pageSize + 1)
+                .getResultList();
+        return CursorPage.of(orders, pageSize, o -> OrderCursor.of(o).encode());
     }
 
     public List<Order> findAllWithMemberDelivery() {
@@ -122,6 +207,34 @@ public class OrderRepository {
                 .getResultList();
     }
 
+    /**
+     * 키셋(seek) 페이징
+     *   - offset 은 앞 페이지의 로우를 모두 읽고 버리므로 페이지가 깊어질수록 느려진다.
+     *   - (orderDate, id) 이후부터 limit + 1 건만 읽으므로 페이지 깊이와 관계없이 일정하다.
+     */
+    public CursorPage<Order> findAllWithMemberDelivery(OrderCursor cursor, int limit) {
+        String jpql = "select o from Order o" +
+                " join fetch o.member m" +
+                " join fetch o.delivery d";
+        if (cursor != null) {
+            jpql += " where" + KEYSET_CONDITION;
+        }
+        jpql += KEYSET_ORDER;
+
+        int pageSize = CursorPage.pageSize(limit);
+        TypedQuery<Order> query = em.createQuery(jpql, Order.class)
+                .setMaxResults(pageSize + 1);
+        if (cursor != null) {
+            query = setCursor(query, cursor);
+        }
+        return CursorPage.of(query.getResultList(), pageSize, o -> OrderCursor.of(o).encode());
+    }
+
+    private static <T> TypedQuery<T> setCursor(TypedQuery<T> query, OrderCursor cursor) {
+        return query.setParameter("cursorDate", cursor.getOrderDate())
+                    .setParameter("cursorId", cursor.getOrderId());
+    }
+
     public List<Order> findAllWithMemberDelivery(int offset, int limit) {
         return em.createQuery(
                         "select o from Order o" +
@@ -0,0 +1,40 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Value;
+import org.springframework.util.StringUtils;
+
+/**
+ * 주문 건수 캐시 키 (OrderSearch 의 값 복사본)
+ */
+@Value
+public class OrderSearchKey {
+
+    OrderStatus orderStatus;
+    String memberName;
+
+    public static OrderSearchKey of(OrderSearch orderSearch) {
+        String memberName = StringUtils.hasText(orderSearch.getMemberName()) ? orderSearch.getMemberName() : null;
+        return new OrderSearchKey(orderSearch.getOrderStatus(), memberName);
+    }
+
+    public OrderSearch toOrderSearch() {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setOrderStatus(orderStatus);
+        orderSearch.setMemberName(memberName);
+        return orderSearch;
+    }
+
+    /**
+     * 주문 상태가 from → to 로 바뀌었을 때 이 조건의 건수 변화 (새 주문이면 from = null)
+     */
+    public long delta(OrderStatus from, OrderStatus to, String orderMemberName) {
+        if (memberName != null && (orderMemberName == null || !orderMemberName.contains(memberName))) {
+            return 0;
+        }
+        if (orderStatus == null) {
+            return from == null ? 1 : 0;
+        }
+        return (orderStatus == to ? 1 : 0) - (orderStatus == from ? 1 : 0);
+    }
+}
@@ -0,0 +1,287 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.support.ChunkedInQueryExecutor;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * OrderSearch 동적 쿼리 엔진
+ *
+ *   - 검색조건 유무 조합(비트마스크)마다 JPQL 을 한 번만 만들어 named query 로 등록해 둔다.
+ *   - 요청마다 JPQL 문자열을 이어 붙이거나 Criteria 트리를 다시 만들지 않고,
+ *     등록된 쿼리를 꺼내서 파라미터만 바인딩한다.
+ *   - 회원 이름은 포함(contains) 검색으로 통일한다. %, _ 는 일반 문자로 취급한다.
+ *   - 회원 이름 인덱스(MemberNameIndex)가 답할 수 있으면 like 대신 m.id in (...) 으로 조회한다.
+ *   - Criteria 버전도 조합마다 트리를 한 번만 만들어 두고, 같은 이름의 파라미터로 바인딩한다.
+ */
+@Component
+public class OrderSearchQueries {
+
+    private static final int STATUS = 1;
+    private static final int MEMBER_NAME = 1 << 1;
+    private static final int CURSOR = 1 << 2;
+    private static final int MEMBER_IDS = 1 << 3;   // 회원 이름 → 이름 인덱스로 찾은 회원ID
+
+    private static final int MAX_MEMBER_IDS = 512;  // 넘으면 like 검색으로 대체
+
+    private static final char LIKE_ESCAPE = '!';
+
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+    private final MemberNameIndex memberNameIndex;
+
+    private final ConcurrentMap<String, String> registered = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, CriteriaQuery<Order>> criteriaVariants = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public OrderSearchQueries(EntityManager em, EntityManagerFactory emf, MemberNameIndex memberNameIndex) {
+        this.em = em;
+        this.emf = emf;
+        this.memberNameIndex = memberNameIndex;
+    }
+
+    /**
+     * 조회 대상(select ~ from ~ join)
+     *   - 별칭은 주문 o, 회원 m 을 사용해야 한다.
+     */
+    @Getter
+    public static class Template<T> {
+        private final String name;
+        private final String selectFrom;
+        private final Class<T> resultClass;
+        private final boolean ordered;      // false 면 order by 생략 (count 쿼리)
+
+        public Template(String name, String selectFrom, Class<T> resultClass) {
+            this(name, selectFrom, resultClass, true);
+        }
+
+        public Template(String name, String selectFrom, Class<T> resultClass, boolean ordered) {
+            this.name = name;
+            this.selectFrom = selectFrom;
+            this.resultClass = resultClass;
+            this.ordered = ordered;
+        }
+    }
+
+    /**
+     * 조건 조합에 맞는 쿼리를 꺼내서 파라미터를 바인딩한다. (정렬: orderDate, id)
+     */
+    public <T> TypedQuery<T> create(Template<T> template, OrderSearch orderSearch, OrderCursor cursor) {
+        List<Long> memberIds = resolveMemberIds(orderSearch);
+        int mask = mask(orderSearch, cursor, memberIds != null);
+        String queryName = template.getName() + "#" + mask;
+
+        String registeredName = registered.get(queryName);
+        if (registeredName != null) {
+            hits.increment();
+        } else {
+            registeredName = registered.computeIfAbsent(queryName, name -> {
+                misses.increment();
+                register(name, jpql(template, mask), template.getResultClass());
+                return name;
+            });
+        }
+
+        return bind(em.createNamedQuery(registeredName, template.getResultClass()), mask, orderSearch, cursor, memberIds);
+    }
+
+    /**
+     * Criteria 버전 (OrderRepository.findAllByCriteria, 정렬: orderDate, id)
+     *   조합마다 만든 Criteria 트리를 재사용한다. 트리를 JPQL 로 옮기는 일은 호출마다 하지만
+     *   같은 문자열이 나오므로 Hibernate 쿼리 플랜 캐시에서 찾는다.
+     */
+    public TypedQuery<Order> createCriteria(OrderSearch orderSearch, OrderCursor cursor) {
+        List<Long> memberIds = resolveMemberIds(orderSearch);
+        int mask = mask(orderSearch, cursor, memberIds != null);
+
+        CriteriaQuery<Order> criteria = criteriaVariants.get(mask);
+        if (criteria != null) {
+            hits.increment();
+        } else {
+            criteria = criteriaVariants.computeIfAbsent(mask, m -> {
+                misses.increment();
+                return criteria(emf.getCriteriaBuilder(), m);
+            });
+        }
+        return bind(em.createQuery(criteria), mask, orderSearch, cursor, memberIds);
+    }
+
+    private static <T> TypedQuery<T> bind(TypedQuery<T> query, int mask, OrderSearch orderSearch, OrderCursor cursor,
+                                          List<Long> memberIds) {
+        if ((mask & STATUS) != 0) {
+            query.setParameter("status", orderSearch.getOrderStatus());
+        }
+        if ((mask & MEMBER_NAME) != 0) {
+            query.setParameter("name", containsPattern(orderSearch.getMemberName()));
+        }
+        if ((mask & MEMBER_IDS) != 0) {
+            query.setParameter("memberIds", memberIds);
+        }
+        if ((mask & CURSOR) != 0) {
+            query.setParameter("cursorDate", cursor.getOrderDate())
+                 .setParameter("cursorId", cursor.getOrderId());
+        }
+        return query;
+    }
+
+    /**
+     * 쿼리 정의만 등록하고 등록에 쓴 EntityManager 는 바로 닫는다.
+     */
+    private void register(String name, String jpql, Class<?> resultClass) {
+        EntityManager registrar = emf.createEntityManager();
+        try {
+            emf.addNamedQuery(name, registrar.createQuery(jpql, resultClass));
+        } finally {
+            registrar.close();
+        }
+    }
+
+    /**
+     * like 포함 검색 패턴 (escape 문자: LIKE_ESCAPE)
+     */
+    public static String containsPattern(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 2).append('%');
+        for (char c : text.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                sb.append(LIKE_ESCAPE);
+            }
+            sb.append(c);
+        }
+        return sb.append('%').toString();
+    }
+
+    /**
+     * like 접두어 검색 패턴 (인덱스 범위 조회 가능)
+     */
+    public static String startsWithPattern(String text) {
+        return containsPattern(text).substring(1);
+    }
+
+    public static char likeEscape() {
+        return LIKE_ESCAPE;
+    }
+
+    /**
+     * 이름 인덱스로 회원ID 를 찾는다. 답할 수 없거나 너무 많으면 null (→ like 검색)
+     * 일치하는 회원이 없으면 존재할 수 없는 ID(0) 하나로 조회해서 빈 결과를 만든다.
+     */
+    private List<Long> resolveMemberIds(OrderSearch orderSearch) {
+        if (!StringUtils.hasText(orderSearch.getMemberName())) {
+            return null;
+        }
+        Set<Long> ids = memberNameIndex.findIdsContaining(orderSearch.getMemberName());
+        if (ids == null || ids.size() > MAX_MEMBER_IDS) {
+            return null;
+        }
+        if (ids.isEmpty()) {
+            return Collections.singletonList(0L);
+        }
+        return ChunkedInQueryExecutor.padToPowerOfTwo(new ArrayList<>(ids), MAX_MEMBER_IDS);
+    }
+
+    private static int mask(OrderSearch orderSearch, OrderCursor cursor, boolean byMemberIds) {
+        int mask = 0;
+        if (orderSearch.getOrderStatus() != null) {
+            mask |= STATUS;
+        }
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            mask |= byMemberIds ? MEMBER_IDS : MEMBER_NAME;
+        }
+        if (cursor != null) {
+            mask |= CURSOR;
+        }
+        return mask;
+    }
+
+    private static String jpql(Template<?> template, int mask) {
+        List<String> conditions = new ArrayList<>();
+        if ((mask & STATUS) != 0) {
+            conditions.add("o.status = :status");
+        }
+        if ((mask & MEMBER_NAME) != 0) {
+            conditions.add("m.name like :name escape '" + LIKE_ESCAPE + "'");
+        }
+        if ((mask & MEMBER_IDS) != 0) {
+            conditions.add("m.id in :memberIds");
+        }
+        if ((mask & CURSOR) != 0) {
+            conditions.add("(o.orderDate > :cursorDate or (o.orderDate = :cursorDate and o.id > :cursorId))");
+        }
+        return template.getSelectFrom() +
+                (conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions)) +
+                (template.isOrdered() ? " order by o.orderDate, o.id" : "");
+    }
+
+    /**
+     * jpql(...) 과 같은 조건을 Criteria 로 (파라미터 이름도 같다)
+     *   별칭을 직접 지정해 둔다. 여러 스레드가 같은 트리를 렌더링할 때 별칭을 새로 만들어 넣지 않게 하기 위함.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static CriteriaQuery<Order> criteria(CriteriaBuilder cb, int mask) {
+        CriteriaQuery<Order> cq = cb.createQuery(Order.class);
+        Root<Order> o = cq.from(Order.class);
+        o.alias("o");
+        Join<Order, Member> m = o.join("member", JoinType.INNER);
+        m.alias("m");
+
+        List<Predicate> conditions = new ArrayList<>();
+        if ((mask & STATUS) != 0) {
+            conditions.add(cb.equal(o.get("status"), cb.parameter(OrderStatus.class, "status")));
+        }
+        if ((mask & MEMBER_NAME) != 0) {
+            conditions.add(cb.like(m.<String>get("name"), cb.parameter(String.class, "name"), LIKE_ESCAPE));
+        }
+        if ((mask & MEMBER_IDS) != 0) {
+            ParameterExpression<Collection> memberIds = cb.parameter(Collection.class, "memberIds");
+            conditions.add(m.get("id").in(memberIds));
+        }
+        if ((mask & CURSOR) != 0) {
+            ParameterExpression<LocalDateTime> cursorDate = cb.parameter(LocalDateTime.class, "cursorDate");
+            conditions.add(cb.or(
+                    cb.greaterThan(o.<LocalDateTime>get("orderDate"), cursorDate),
+                    cb.and(cb.equal(o.get("orderDate"), cursorDate),
+                           cb.greaterThan(o.<Long>get("id"), cb.parameter(Long.class, "cursorId")))));
+        }
+        return cq.select(o)
+                .where(conditions.toArray(new Predicate[0]))
+                .orderBy(cb.asc(o.get("orderDate")), cb.asc(o.get("id")));
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), registered.size() + criteriaVariants.size());
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private long hits;      // 등록된 쿼리 재사용
+        private long misses;    // 새 조합 → JPQL 생성 후 등록
+        private int variants;   // 등록된 쿼리 수 (JPQL + Criteria)
+    }
+}
@@ -0,0 +1,72 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.repository.support.ChunkedInQueryExecutor;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * 주문 목록 읽기 모델(order_summary) 저장소
+ * 변경은 모두 한 문장짜리 UPDATE 로 처리한다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderSummaryRepository {
+
+    private final EntityManager em;
+
+    public void save(OrderSummary summary) {
+        em.persist(summary);
+    }
+
+    public OrderSummary findOne(Long orderId) {
+        return em.find(OrderSummary.class, orderId);
+    }
+
+    public int updateStatus(Long orderId, OrderStatus status) {
+        return em.createQuery("update OrderSummary s set s.status = :status where s.orderId = :orderId")
+                .setParameter("status", status)
+                .setParameter("orderId", orderId)
+                .executeUpdate();
+    }
+
+    public int updateStatus(List<Long> orderIds, OrderStatus status) {
+        return em.createQuery("update OrderSummary s set s.status = :status where s.orderId in :orderIds")
+                .setParameter("status", status)
+                .setParameter("orderIds", ChunkedInQueryExecutor.padToPowerOfTwo(orderIds, Integer.MAX_VALUE))
+                .executeUpdate();
+    }
+
+    public int renameMember(Long memberId, String memberName) {
+        return em.createQuery("update OrderSummary s set s.memberName = :memberName where s.memberId = :memberId")
+                .setParameter("memberName", memberName)
+                .setParameter("memberId", memberId)
+                .executeUpdate();
+    }
+
+    /**
+     * 원본 테이블(orders, member, delivery)에서 다시 채운다.
+     * @return 채운 주문 건수
+     */
+    public int rebuild() {
+        nativeUpdate("delete from order_summary");
+        return nativeUpdate(
+                "insert into order_summary (order_id, member_id, member_name, order_date, status, city, street, zipcode)" +
+                " select o.id, m.member_id, m.name, o.order_date, o.status, d.city, d.street, d.zipcode" +
+                "   from orders o" +
+                "   join member m on m.member_id = o.member_id" +
+                "   join delivery d on d.delivery_id = o.delivery_id");
+    }
+
+    private int nativeUpdate(String sql) {
+        return em.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(OrderSummary.class)   // 다른 엔티티 캐시는 건드리지 않는다.
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,21 @@
+package jpabook.jpashop.repository.member.query;
+
+import jpabook.jpashop.domain.Address;
+import lombok.Data;
+
+/**
+ * 회원 목록 한 줄 (생성자 표현식으로 필요한 컬럼만 조회)
+ */
+@Data
+public class MemberListDto {
+
+    private Long id;
+    private String name;
+    private Address address;
+
+    public MemberListDto(Long id, String name, Address address) {
+        this.id = id;
+        this.name = name;
+        this.address = address;
+    }
+}
@@ -0,0 +1,73 @@
+package jpabook.jpashop.repository.member.query;
+
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.repository.CursorPage;
+import jpabook.jpashop.repository.OrderSearchQueries;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 회원 목록 조회 전용
+ *   - 엔티티 대신 MemberListDto 로 조회한다. (영속성 컨텍스트, orders 프록시, 2차 캐시를 거치지 않는다)
+ *   - 회원ID 키셋 페이징: 커서 = 마지막 회원ID. 페이지 깊이와 무관하게 PK 범위 조회 1번.
+ *   - 이름 접두어 조건은 선택. (like 'prefix%')
+ */
+@Repository
+@RequiredArgsConstructor
+public class MemberQueryRepository {
+
+    private static final String SELECT =
+            "select new jpabook.jpashop.repository.member.query.MemberListDto(m.id, m.name, m.address)" +
+                    " from Member m";
+
+    private final EntityManager em;
+
+    /**
+     * @param namePrefix 이름 접두어 (없으면 전체)
+     * @param cursor     이전 페이지의 nextCursor (없으면 첫 페이지)
+     */
+    public CursorPage<MemberListDto> findPage(String namePrefix, String cursor, int limit) {
+        int pageSize = CursorPage.pageSize(limit);
+        Long afterId = decodeCursor(cursor);
+        boolean hasPrefix = StringUtils.hasText(namePrefix);
+
+        List<String> conditions = new ArrayList<>();
+        if (hasPrefix) {
+            conditions.add("m.name like :prefix escape '" + OrderSearchQueries.likeEscape() + "'");
+        }
+        if (afterId != null) {
+            conditions.add("m.id > :afterId");
+        }
+        String jpql = SELECT
+                + (conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions))
+                + " order by m.id";
+
+        TypedQuery<MemberListDto> query = em.createQuery(jpql, MemberListDto.class)
+                .setMaxResults(pageSize + 1);
+        if (hasPrefix) {
+            query.setParameter("prefix", OrderSearchQueries.startsWithPattern(namePrefix));
+        }
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+        }
+        List<MemberListDto> rows = query.getResultList();
+        return CursorPage.of(rows, pageSize, last -> String.valueOf(last.getId()));
+    }
+
+    private static Long decodeCursor(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        try {
+            return Long.valueOf(cursor);
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("잘못된 페이지 커서입니다. cursor=" + cursor, e);
+        }
+    }
+}
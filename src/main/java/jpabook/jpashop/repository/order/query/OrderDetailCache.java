@@ -0,0 +1,143 @@
+package jpabook.jpashop.repository.order.query;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 주문 상세(조립이 끝난 OrderQueryDto) 캐시
+ *
+ *   - 크기 제한 LRU. 넘치면 가장 오래 안 쓴 주문부터 버린다.
+ *   - 주문 취소, 주문/배송 상태 변경 시 무효화한다. (OrderDetailCacheListener)
+ *   - 회원 이름/상품 이름이 바뀌면 전체를 비운다. DTO 에는 회원ID/상품ID 가 없어 어느 주문인지 알 수 없고,
+ *     이름 변경은 드물어서 다시 채우는 비용이 작다.
+ *   - 조회 시작 후 무효화가 한 번이라도 있었으면 조회 결과를 캐시에 넣지 않는다.
+ *     (커밋 직전 값을 읽은 조회가 무효화 뒤에 옛 값을 다시 넣는 것을 막기 위해)
+ */
+@Component
+public class OrderDetailCache {
+
+    private final int maxSize;
+    private final Map<Long, OrderQueryDto> entries;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public OrderDetailCache(@Value("${jpashop.cache.order-detail.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<Long, OrderQueryDto>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, OrderQueryDto> eldest) {
+                if (size() > OrderDetailCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized OrderQueryDto get(Long orderId) {
+        OrderQueryDto order = entries.get(orderId);
+        if (order == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return order;
+    }
+
+    /**
+     * DB 조회 전에 받아 두고 putIfFresh 에 넘긴다.
+     */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    public synchronized void putIfFresh(OrderQueryDto order, long stamp) {
+        if (stamp == invalidations.get()) {
+            entries.put(order.getOrderId(), order);
+        }
+    }
+
+    public synchronized void evict(Long orderId) {
+        invalidations.incrementAndGet();
+        entries.remove(orderId);
+    }
+
+    /**
+     * 지금 무효화하고, 트랜잭션 커밋 후에 한 번 더 무효화한다.
+     */
+    public void evictNowAndAfterCommit(Long orderId) {
+        evict(orderId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(orderId);
+                }
+            });
+        }
+    }
+
+    /**
+     * 여러 주문 무효화 (일괄 취소)
+     */
+    public void evictAllNowAndAfterCommit(Collection<Long> orderIds) {
+        orderIds.forEach(this::evict);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    orderIds.forEach(OrderDetailCache.this::evict);
+                }
+            });
+        }
+    }
+
+    public synchronized void clear() {
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * 전체 무효화 (회원/상품 이름 변경). 지금 비우고, 트랜잭션 커밋 후에 한 번 더 비운다.
+     */
+    public void clearNowAndAfterCommit() {
+        clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    clear();
+                }
+            });
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(entries.size(), maxSize, hits.sum(), misses.sum(), evictions.sum(), invalidations.get());
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private int size;
+        private int maxSize;
+        private long hits;
+        private long misses;
+        private long evictions;       // 크기 제한으로 밀려난 건수
+        private long invalidations;   // 변경으로 무효화된 건수
+    }
+}
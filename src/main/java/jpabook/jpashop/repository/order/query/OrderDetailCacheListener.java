@@ -0,0 +1,34 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Order;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * 주문/배송 엔티티가 변경되면 주문 상세 캐시를 무효화한다.
+ * (Hibernate 가 스프링 빈으로 생성하는 JPA 엔티티 리스너)
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderDetailCacheListener {
+
+    private final OrderDetailCache orderDetailCache;
+
+    @PostUpdate
+    @PostRemove
+    public void changed(Object entity) {
+        Long orderId = null;
+        if (entity instanceof Order) {
+            orderId = ((Order) entity).getId();
+        } else if (entity instanceof Delivery && ((Delivery) entity).getOrder() != null) {
+            orderId = ((Delivery) entity).getOrder().getId();
+        }
+        if (orderId != null) {
+            orderDetailCache.evictNowAndAfterCommit(orderId);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package jpabook.jpashop.repository.order.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 플랫 로우(OrderFlatDto) → 주문(OrderQueryDto) 조립기
+ *   - 주문번호 순으로 정렬된 로우를 한 번만 훑으면서 연속된 로우를 하나의 주문으로 접는다.
+ *   - groupingBy 처럼 로우마다 키 객체를 만들거나 HashMap 에 모으지 않으므로 주문 순서가 유지되고,
+ *     추가 메모리는 조립 중인 주문 하나 뿐이다. (스트리밍 내보내기에서도 그대로 사용)
+ *   - 주문번호가 바뀌면 완성된 주문을 sink 로 넘기고, 마지막 주문은 finish() 에서 넘긴다.
+ */
+public class OrderFlatAssembler implements Consumer<OrderFlatDto> {
+
+    private final Consumer<OrderQueryDto> sink;
+    private OrderQueryDto current;
+
+    public OrderFlatAssembler(Consumer<OrderQueryDto> sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * 정렬된 로우 전체를 주문 목록으로 조립
+     */
+    public static List<OrderQueryDto> assemble(List<OrderFlatDto> rows) {
+        List<OrderQueryDto> result = new ArrayList<>();
+        OrderFlatAssembler assembler = new OrderFlatAssembler(result::add);
+        rows.forEach(assembler);
+        assembler.finish();
+        return result;
+    }
+
+    @Override
+    public void accept(OrderFlatDto row) {
+        if (current == null || !current.getOrderId().equals(row.getOrderId())) {
+            if (current != null && current.getOrderId() > row.getOrderId()) {
+                throw new IllegalStateException("주문번호 순으로 정렬된 로우만 조립할 수 있습니다. orderId=" + row.getOrderId());
+            }
+            finish();
+            current = new OrderQueryDto(row.getOrderId(), row.getName(), row.getOrderDate(), row.getOrderStatus(), row.getAddress(), new ArrayList<>());
+        }
+        current.getOrderItems().add(new OrderItemQueryDto(row.getOrderId(), row.getItemName(), row.getOrderPrice(), row.getCount()));
+    }
+
+    /**
+     * 조립 중인 주문을 내보낸다.
+     */
+    public void finish() {
+        if (current != null) {
+            sink.accept(current);
+            current = null;
+        }
+    }
+}
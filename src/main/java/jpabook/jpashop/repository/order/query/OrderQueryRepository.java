@@ -1,18 +1,47 @@
 package jpabook.jpashop.repository.order.query;
 
+import jpabook.jpashop.repository.CursorPage;
+import jpabook.jpashop.repository.OrderCursor;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSearchQueries;
+import jpabook.jpashop.repository.support.ChunkedInQueryExecutor;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderQueryRepository {
 
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private static final String FLAT_SELECT =
+            "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
+                    " from Order o" +
+                    " join o.member m" +
+                    " join o.delivery d" +
+                    " join o.orderItems oi" +
+                    " join oi.item i";
+    private static final String FLAT_ORDER = " order by o.id, oi.id";
+
+    private static final OrderSearchQueries.Template<OrderQueryDto> SEARCH = new OrderSearchQueries.Template<>(
+            "OrderQueryDto.search",
+            "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
+                    " from Order o" +
+                    " join o.member m" +
+                    " join o.delivery d",
+            OrderQueryDto.class);
+
     private final EntityManager em;
+    private final ChunkedInQueryExecutor chunkedInQueryExecutor;
+    private final OrderSearchQueries orderSearchQueries;
 
     /**
      * 컬렉션은 별도로 조회
@@ -76,33 +105,114 @@ public class OrderQueryRepository {
         return result;
     }
 
+    /**
+     * 최적화 + 검색 + 키셋 페이징
+     * Query: 루트 1번(조건 + limit), 컬렉션 1번(해당 페이지 주문번호만)
+     * 테이블 크기와 관계없이 페이지당 쿼리 2번
+     */
+    public CursorPage<OrderQueryDto> findAllByDto_optimization(OrderSearch orderSearch, OrderCursor cursor, int limit) {
+
+        //루트 조회(검색조건 + 커서 이후 limit + 1 건)
+        int pageSize = CursorPage.pageSize(limit);
+        CursorPage<OrderQueryDto> page = CursorPage.of(findOrders(orderSearch, cursor, pageSize + 1), pageSize,
+                o -> new OrderCursor(o.getOrderDate(), o.getOrderId()).encode());
+
+        //해당 페이지 주문의 orderItem 컬렉션만 MAP 한방에 조회
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(toOrderIds(page.getData()));
+
+        page.getData().forEach(o -> o.setOrderItems(orderItemMap.getOrDefault(o.getOrderId(), Collections.emptyList())));
+
+        return page;
+    }
+
+    /**
+     * 1:N 관계(컬렉션)를 제외한 나머지를 검색조건, 커서로 조회
+     */
+    private List<OrderQueryDto> findOrders(OrderSearch orderSearch, OrderCursor cursor, int maxResults) {
+        return orderSearchQueries.create(SEARCH, orderSearch, cursor)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
     private List<Long> toOrderIds(List<OrderQueryDto> result) {
         return result.stream()
                 .map(o -> o.getOrderId())
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 주문번호가 많으면 IN 절을 청크로 나눠서 조회한다. (ChunkedInQueryExecutor 참고)
+     */
     private Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
-        List<OrderItemQueryDto> orderItems = em.createQuery(
-                "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
-                        " from OrderItem oi" +
-                        " join oi.item i" +
-                        " where oi.order.id in :orderIds", OrderItemQueryDto.class)
-                .setParameter("orderIds", orderIds)
-                .getResultList();
+        List<OrderItemQueryDto> orderItems = chunkedInQueryExecutor.fetch(orderIds, (entityManager, ids) ->
+                entityManager.createQuery(
+                        "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                                " from OrderItem oi" +
+                                " join oi.item i" +
+                                " where oi.order.id in :orderIds", OrderItemQueryDto.class)
+                        .setParameter("orderIds", ids)
+                        .getResultList());
 
         return orderItems.stream()
                 .collect(Collectors.groupingBy(OrderItemQueryDto::getOrderId));
     }
 
+    /**
+     * 플랫 데이터 조회 (주문번호 순 정렬 → OrderFlatAssembler 로 조립)
+     */
     public List<OrderFlatDto> findAllByDto_flat() {
-        return em.createQuery(
-                "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
-                        " from Order o" +
-                        " join o.member m" +
-                        " join o.delivery d" +
-                        " join o.orderItems oi" +
-                        " join oi.item i", OrderFlatDto.class)
+        return em.createQuery(FLAT_SELECT + FLAT_ORDER, OrderFlatDto.class)
                 .getResultList();
     }
-}
\ No newline at end of file
+
+    /**
+     * 주문 상세: 주문 하나를 회원/배송/주문상품/상품까지 쿼리 1번으로 조회
+     * @return 없으면 null
+     */
+    public OrderQueryDto findOrderDetail(Long orderId) {
+        List<OrderFlatDto> flats = em.createQuery(FLAT_SELECT + " where o.id = :orderId" + FLAT_ORDER, OrderFlatDto.class)
+                .setParameter("orderId", orderId)
+                .getResultList();
+        List<OrderQueryDto> orders = OrderFlatAssembler.assemble(flats);
+        return orders.isEmpty() ? null : orders.get(0);
+    }
+
+    /**
+     * 플랫 데이터 조회 - 주문 경계 페이징
+     * 플랫 로우에 바로 limit 을 걸면 주문 중간에서 잘리므로,
+     * afterOrderId 이후 주문번호 limit + 1 개를 먼저 구하고 페이지에 들어갈 주문들의 로우만 조회해서 조립한다.
+     * 다음 페이지 커서는 마지막 주문번호 (다음 요청의 afterOrderId)
+     */
+    public CursorPage<OrderQueryDto> findAllByDto_flat(Long afterOrderId, int limit) {
+        int pageSize = CursorPage.pageSize(limit);
+        List<Long> rows = em.createQuery(
+                "select o.id from Order o" +
+                        " where o.id > :afterOrderId" +
+                        " order by o.id", Long.class)
+                .setParameter("afterOrderId", afterOrderId == null ? 0L : afterOrderId)
+                .setMaxResults(pageSize + 1)
+                .getResultList();
+        CursorPage<Long> orderIds = CursorPage.of(rows, pageSize, String::valueOf);
+        if (orderIds.getData().isEmpty()) {
+            return new CursorPage<>(Collections.emptyList(), null);
+        }
+
+        List<OrderFlatDto> flats = em.createQuery(FLAT_SELECT + " where o.id in :orderIds" + FLAT_ORDER, OrderFlatDto.class)
+                .setParameter("orderIds", orderIds.getData())
+                .getResultList();
+        return new CursorPage<>(OrderFlatAssembler.assemble(flats), orderIds.getNextCursor());
+    }
+
+    /**
+     * 플랫 데이터 스트림 조회 (내보내기 용)
+     * 전체를 List 로 올리지 않고 fetchSize 단위로 커서를 따라가며 읽는다.
+     * 주문번호 순으로 정렬되어 있으므로 주문번호가 바뀌는 시점에 한 주문이 완성된다.
+     * 스트림은 트랜잭션 안에서 사용하고 반드시 닫아야 한다.
+     */
+    public Stream<OrderFlatDto> streamAllByDto_flat() {
+        return em.createQuery(FLAT_SELECT + FLAT_ORDER, OrderFlatDto.class)
+                .setHint(QueryHints.FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(QueryHints.READ_ONLY, true)
+                .getResultStream();
+    }
+}
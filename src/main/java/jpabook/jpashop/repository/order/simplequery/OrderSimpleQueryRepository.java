@@ -12,12 +12,14 @@ public class OrderSimpleQueryRepository {
 
     private final EntityManager em;
 
+    /**
+     * 주문 목록 요약(order_summary) 한 테이블만 읽는다. (조인 없음)
+     */
     public List<OrderSimpleQueryDto> findOrderDtos() {
         return em.createQuery(
-                "select new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
-                        " from Order o" +
-                        " join o.member m" +
-                        " join o.delivery d", OrderSimpleQueryDto.class)
+                "select new jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto(s.orderId, s.memberName, s.orderDate, s.status, s.address)" +
+                        " from OrderSummary s" +
+                        " order by s.orderDate, s.orderId", OrderSimpleQueryDto.class)
                 .getResultList();
     }
 }
\ No newline at end of file
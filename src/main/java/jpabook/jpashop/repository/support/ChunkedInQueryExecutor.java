@@ -0,0 +1,180 @@
+package jpabook.jpashop.repository.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * where x.id in :ids 조회를 고정 크기 청크로 나눠서 실행한다.
+ *
+ *   - ID 를 한 번에 모두 넘기면 드라이버/DB 파라미터 개수 제한에 걸리고,
+ *     리스트 크기마다 다른 쿼리가 만들어져 쿼리 플랜 캐시가 오염된다.
+ *   - 청크는 chunkSize 개씩 자르고, 마지막 청크는 2의 거듭제곱 크기까지 마지막 ID 로 채운다.
+ *     (in 절 결과는 같고, 쿼리 모양은 log2(chunkSize) + 1 가지로 고정된다)
+ *   - parallelism 이 2 이상이고 청크가 여러 개면 별도 EntityManager(별도 커넥션)로 병렬 조회한다.
+ *     이 경우 호출한 트랜잭션의 커밋 전 변경 내용은 보이지 않는다.
+ */
+@Slf4j
+@Component
+public class ChunkedInQueryExecutor {
+
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+    private final int chunkSize;
+    private final int parallelism;
+    private final ExecutorService executor;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder chunkNanos = new LongAdder();
+    private final LongAccumulator maxChunkNanos = new LongAccumulator(Math::max, 0);
+
+    public ChunkedInQueryExecutor(EntityManager em,
+                                  EntityManagerFactory emf,
+                                  @Value("${jpashop.query.in-chunk-size:500}") int chunkSize,
+                                  @Value("${jpashop.query.in-parallelism:1}") int parallelism) {
+        this.em = em;
+        this.emf = emf;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.parallelism = Math.max(1, parallelism);
+        this.executor = this.parallelism > 1 ? Executors.newFixedThreadPool(this.parallelism) : null;
+    }
+
+    /**
+     * @param ids   조회할 ID 목록
+     * @param query (EntityManager, 청크 ID 목록) → 청크 조회 결과
+     */
+    public <T> List<T> fetch(List<Long> ids, BiFunction<EntityManager, List<Long>, List<T>> query) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<List<Long>> partitions = partition(ids);
+        loads.increment();
+
+        long start = System.nanoTime();
+        List<T> result = (executor == null || partitions.size() == 1)
+                ? fetchSerial(partitions, query)
+                : fetchParallel(partitions, query);
+
+        log.debug("in-query ids={} chunks={} elapsed={}ms", ids.size(), partitions.size(), (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    private <T> List<T> fetchSerial(List<List<Long>> partitions, BiFunction<EntityManager, List<Long>, List<T>> query) {
+        List<T> result = new ArrayList<>();
+        for (List<Long> partition : partitions) {
+            result.addAll(timed(em, partition, query));
+        }
+        return result;
+    }
+
+    private <T> List<T> fetchParallel(List<List<Long>> partitions, BiFunction<EntityManager, List<Long>, List<T>> query) {
+        List<Future<List<T>>> futures = new ArrayList<>();
+        for (List<Long> partition : partitions) {
+            futures.add(executor.submit(() -> {
+                EntityManager chunkEm = emf.createEntityManager();
+                try {
+                    return timed(chunkEm, partition, query);
+                } finally {
+                    chunkEm.close();
+                }
+            }));
+        }
+
+        List<T> result = new ArrayList<>();
+        try {
+            for (Future<List<T>> future : futures) {
+                result.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("청크 조회가 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("청크 조회에 실패했습니다.", e.getCause());
+        }
+        return result;
+    }
+
+    private <T> List<T> timed(EntityManager entityManager, List<Long> partition, BiFunction<EntityManager, List<Long>, List<T>> query) {
+        long start = System.nanoTime();
+        try {
+            return query.apply(entityManager, partition);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            chunks.increment();
+            chunkNanos.add(elapsed);
+            maxChunkNanos.accumulate(elapsed);
+        }
+    }
+
+    /**
+     * chunkSize 단위로 자르고 마지막 청크는 2의 거듭제곱 크기로 채운다.
+     */
+    List<List<Long>> partition(List<Long> ids) {
+        List<List<Long>> partitions = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            partitions.add(padToPowerOfTwo(ids.subList(from, Math.min(from + chunkSize, ids.size())), chunkSize));
+        }
+        return partitions;
+    }
+
+    /**
+     * in 절 파라미터 개수를 2의 거듭제곱(최대 max)으로 맞춘다. 빈 곳은 마지막 ID 로 채운다.
+     */
+    public static List<Long> padToPowerOfTwo(List<Long> ids, int max) {
+        List<Long> padded = new ArrayList<>(ids);
+        int size = ids.size() <= 1 ? ids.size() : Math.min(max, Integer.highestOneBit(ids.size() - 1) << 1);
+        Long last = padded.get(padded.size() - 1);
+        while (padded.size() < size) {
+            padded.add(last);
+        }
+        return padded;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    public Stats stats() {
+        long chunkCount = chunks.sum();
+        return new Stats(loads.sum(), chunkCount,
+                chunkCount == 0 ? 0 : chunkNanos.sum() / chunkCount / 1_000,
+                maxChunkNanos.get() / 1_000,
+                chunkSize, parallelism);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private long loads;           // fetch() 호출 수
+        private long chunks;          // 실행한 청크 쿼리 수
+        private long avgChunkMicros;  // 청크 평균 소요시간
+        private long maxChunkMicros;  // 청크 최대 소요시간
+        private int chunkSize;
+        private int parallelism;
+    }
+}
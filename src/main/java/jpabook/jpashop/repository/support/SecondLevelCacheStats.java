@@ -0,0 +1,56 @@
+package jpabook.jpashop.repository.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 2차 캐시 영역별 통계
+ * JCache 표준 통계 MXBean(javax.cache:type=CacheStatistics) 을 읽는다. (ehcache.xml 의 enable-statistics)
+ */
+@Component
+public class SecondLevelCacheStats {
+
+    private static final String STATISTICS_QUERY = "javax.cache:type=CacheStatistics,*";
+
+    public List<RegionStats> regions() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        List<RegionStats> result = new ArrayList<>();
+        try {
+            for (ObjectName name : server.queryNames(new ObjectName(STATISTICS_QUERY), null)) {
+                result.add(new RegionStats(
+                        name.getKeyProperty("Cache"),
+                        (Long) server.getAttribute(name, "CacheHits"),
+                        (Long) server.getAttribute(name, "CacheMisses"),
+                        (Long) server.getAttribute(name, "CachePuts"),
+                        (Long) server.getAttribute(name, "CacheRemovals"),
+                        (Long) server.getAttribute(name, "CacheEvictions"),
+                        (Float) server.getAttribute(name, "CacheHitPercentage")));
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("2차 캐시 통계를 읽을 수 없습니다.", e);
+        }
+        result.sort(Comparator.comparing(RegionStats::getRegion));
+        return result;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class RegionStats {
+        private String region;
+        private long hits;
+        private long misses;
+        private long puts;
+        private long removals;      // 변경/삭제로 무효화된 건수
+        private long evictions;     // 크기 제한으로 밀려난 건수
+        private float hitPercentage;
+    }
+}
@@ -0,0 +1,192 @@
+package jpabook.jpashop.repository.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * 페이징 목록의 전체 건수 캐시
+ *
+ *   - 페이지를 요청할 때마다 count(*) 를 실행하면 조회 부하가 두 배가 된다.
+ *   - 검색조건(키)별 건수를 메모리에 두고, 주문/취소/회원가입 커밋 후 증감만 반영한다.
+ *   - 주기적으로 정확한 건수로 다시 맞춘다. (증감 반영과 겹치면 잠시 어긋날 수 있다)
+ *     지난 대사 이후 읽힌 키만 다시 센다. 한동안(idle-ms) 읽히지 않은 키는 버린다.
+ *   - 키 수 제한을 넘으면 가장 오래 안 읽힌 키를 버리고 새 키를 넣는다. (회원 이름처럼 값이 다양한 검색조건)
+ *   - EXACT 로 요청하면 항상 count 쿼리를 실행하고 그 값으로 캐시를 맞춘다.
+ */
+@Slf4j
+@Component
+public class TotalCountCache {
+
+    public enum Mode {
+        ESTIMATED, EXACT;
+
+        public static Mode of(String value) {
+            return "exact".equalsIgnoreCase(value) ? EXACT : ESTIMATED;
+        }
+    }
+
+    private final int maxKeys;
+    private final long idleMs;
+    private final Map<Object, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder exactCounts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TotalCountCache(@Value("${jpashop.cache.total-count.max-keys:1000}") int maxKeys,
+                           @Value("${jpashop.cache.total-count.idle-ms:600000}") long idleMs) {
+        this.maxKeys = maxKeys;
+        this.idleMs = idleMs;
+    }
+
+    private static class Entry {
+        private final AtomicLong count;
+        private final LongSupplier exactCounter;
+        private volatile long lastReadAt = System.currentTimeMillis();
+        private final AtomicBoolean readSinceReconcile = new AtomicBoolean();
+
+        Entry(long count, LongSupplier exactCounter) {
+            this.count = new AtomicLong(count);
+            this.exactCounter = exactCounter;
+        }
+
+        void touch() {
+            lastReadAt = System.currentTimeMillis();
+            readSinceReconcile.set(true);
+        }
+    }
+
+    /**
+     * @param key          검색조건 (equals/hashCode 필수)
+     * @param exactCounter 정확한 건수를 세는 쿼리
+     */
+    public long get(Object key, Mode mode, LongSupplier exactCounter) {
+        Entry entry = entries.get(key);
+        if (entry != null && mode == Mode.ESTIMATED) {
+            entry.touch();
+            hits.increment();
+            return entry.count.get();
+        }
+
+        long exact = exactCounter.getAsLong();
+        exactCounts.increment();
+        if (entry != null) {
+            entry.touch();
+            entry.count.set(exact);
+        } else {
+            if (entries.size() >= maxKeys) {
+                evictLeastRecentlyRead();
+            }
+            entries.putIfAbsent(key, new Entry(exact, exactCounter));
+        }
+        return exact;
+    }
+
+    /**
+     * 가장 오래 안 읽힌 키 하나를 버린다. (새 키를 넣을 때만, 키 수만큼 훑는다)
+     */
+    private void evictLeastRecentlyRead() {
+        Map.Entry<Object, Entry> eldest = null;
+        for (Map.Entry<Object, Entry> e : entries.entrySet()) {
+            if (eldest == null || e.getValue().lastReadAt < eldest.getValue().lastReadAt) {
+                eldest = e;
+            }
+        }
+        if (eldest != null && entries.remove(eldest.getKey(), eldest.getValue())) {
+            evictions.increment();
+        }
+    }
+
+    /**
+     * 커밋 후에 키마다 delta 만큼 증감한다. (0 이면 해당 없음)
+     */
+    public void adjustAfterCommit(ToLongFunction<Object> delta) {
+        afterCommit(() -> entries.forEach((key, entry) -> {
+            long d = delta.applyAsLong(key);
+            if (d != 0) {
+                entry.count.addAndGet(d);
+            }
+        }));
+    }
+
+    /**
+     * 증감으로 맞출 수 없는 변경(예: 회원 이름변경)은 해당 키를 버린다.
+     */
+    public void invalidateAfterCommit(Predicate<Object> keys) {
+        afterCommit(() -> entries.keySet().removeIf(keys));
+    }
+
+    /**
+     * 정확한 건수로 다시 맞추기
+     *   지난 대사 이후 읽힌 키만 count 쿼리를 실행하고, idle-ms 동안 안 읽힌 키는 버린다.
+     */
+    @Scheduled(fixedDelayString = "${jpashop.cache.total-count.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        long idleBefore = System.currentTimeMillis() - idleMs;
+        for (Iterator<Map.Entry<Object, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Object, Entry> e = it.next();
+            Object key = e.getKey();
+            Entry entry = e.getValue();
+            if (entry.lastReadAt < idleBefore) {
+                it.remove();
+                evictions.increment();
+                continue;
+            }
+            if (!entry.readSinceReconcile.getAndSet(false)) {
+                continue;
+            }
+            try {
+                long exact = entry.exactCounter.getAsLong();
+                long old = entry.count.getAndSet(exact);
+                if (old != exact) {
+                    log.info("total count reconciled. key={} cached={} exact={}", key, old, exact);
+                }
+            } catch (RuntimeException ex) {
+                log.warn("total count reconcile failed. key={}", key, ex);
+                it.remove();
+            }
+        }
+    }
+
+    private static void afterCommit(Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            task.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                task.run();
+            }
+        });
+    }
+
+    public Stats stats() {
+        return new Stats(entries.size(), hits.sum(), exactCounts.sum(), evictions.sum());
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private int keys;
+        private long hits;          // 캐시 값으로 응답
+        private long exactCounts;   // count 쿼리 실행
+        private long evictions;     // 키 수 제한 / 미사용으로 버린 키
+    }
+}
@@ -0,0 +1,259 @@
+package jpabook.jpashop.seed;
+
+import jpabook.jpashop.service.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 대용량 테스트 데이터 생성기 (seed 프로필에서 InitDb 대신 실행)
+ *
+ *   - 회원, 상품(Book/Album/Movie), 카테고리, 주문(배송, 주문상품)을 JDBC batch insert 로 넣는다.
+ *   - 청크 단위로 나눠 병렬로 넣고, 청크마다 SplittableRandom(seed, 테이블, 청크번호) 를 쓰므로
+ *     병렬도와 관계없이 seed 가 같으면 같은 데이터가 만들어진다.
+ *   - 회원/상품 선택은 거듭제곱 분포로 쏠리게 한다. (소수의 회원이 주문을 많이 하고, 인기상품에 주문이 몰린다)
+ *   - ID 는 직접 부여하고, 끝나면 시퀀스를 그 뒤로 옮긴다. 주문 목록 요약(order_summary)도 다시 채운다.
+ *
+ *   실행: --spring.profiles.active=seed (스키마는 ddl-auto=create 로 비어 있어야 한다)
+ */
+@Slf4j
+@Component
+@Profile("seed")
+@EnableConfigurationProperties(SeedProperties.class)
+public class BulkDataGenerator implements ApplicationRunner {
+
+    private static final String[] SURNAMES = {"김", "이", "박", "최", "정", "강", "조", "윤", "장", "임"};
+    private static final String[] GIVEN_NAMES = {"민준", "서연", "도윤", "지우", "하준", "서윤", "시우", "지민", "주원", "하은"};
+    private static final String[] CITIES = {"서울", "부산", "인천", "대구", "대전", "광주", "울산", "수원", "원주", "제주"};
+
+    // 테이블별 난수 스트림 구분값
+    private static final long MEMBER = 1, ITEM = 2, CATEGORY = 3, ORDER = 4;
+
+    private final SeedProperties props;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderService orderService;
+
+    public BulkDataGenerator(SeedProperties props, JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager, OrderService orderService) {
+        this.props = props;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.orderService = orderService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Long existing = jdbcTemplate.queryForObject("select count(*) from member", Long.class);
+        if (existing != null && existing > 0) {
+            log.warn("seed skipped: member table already has {} rows", existing);
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(props.getParallelism());
+        try {
+            inChunks(executor, props.getMembers(), MEMBER, this::insertMembers);
+            inChunks(executor, props.getItems(), ITEM, this::insertItems);
+            insertCategories();
+            inChunks(executor, props.getOrders(), ORDER, this::insertOrders);
+        } finally {
+            executor.shutdown();
+        }
+
+        advanceSequences();
+        orderService.rebuildOrderSummary();
+
+        log.info("seed done in {} ms. members={} items={} categories={} orders={}",
+                System.currentTimeMillis() - start,
+                props.getMembers(), props.getItems(), props.getCategories(), props.getOrders());
+    }
+
+    @FunctionalInterface
+    private interface ChunkWriter {
+        void write(long fromId, long toId, SplittableRandom random);
+    }
+
+    /**
+     * [1, total] 을 청크로 나눠 병렬로 쓴다. 청크마다 트랜잭션 1개.
+     */
+    private void inChunks(ExecutorService executor, int total, long table, ChunkWriter writer) throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (long from = 1, chunk = 0; from <= total; from += props.getChunkSize(), chunk++) {
+            long fromId = from;
+            long toId = Math.min(from + props.getChunkSize() - 1, total);
+            SplittableRandom random = random(table, chunk);
+            futures.add(executor.submit(() -> transactionTemplate.executeWithoutResult(
+                    status -> writer.write(fromId, toId, random))));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private SplittableRandom random(long table, long chunk) {
+        return new SplittableRandom(props.getSeed() * 1_000_003L + table * 10_007L + chunk);
+    }
+
+    private void insertMembers(long fromId, long toId, SplittableRandom random) {
+        List<Object[]> rows = new ArrayList<>(props.getBatchSize());
+        for (long id = fromId; id <= toId; id++) {
+            // 이름 + 회원번호: 자연스러운 이름이면서 중복되지 않는다.
+            String name = SURNAMES[random.nextInt(SURNAMES.length)] + GIVEN_NAMES[random.nextInt(GIVEN_NAMES.length)] + id;
+            rows.add(new Object[]{id, name, CITIES[skewed(random, CITIES.length)], "street" + random.nextInt(1000),
+                    String.format("%05d", random.nextInt(100_000))});
+            flushIfFull("insert into member (member_id, name, city, street, zipcode) values (?, ?, ?, ?, ?)", rows);
+        }
+        flush("insert into member (member_id, name, city, street, zipcode) values (?, ?, ?, ?, ?)", rows);
+    }
+
+    private void insertItems(long fromId, long toId, SplittableRandom random) {
+        String sql = "insert into item (item_id, dtype, name, price, stock_quantity, author, isbn, artist, etc, director, actor)" +
+                " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        List<Object[]> rows = new ArrayList<>(props.getBatchSize());
+        for (long id = fromId; id <= toId; id++) {
+            int price = 1000 * (1 + skewed(random, 100));
+            int stock = 1000 + random.nextInt(100_000);
+            int type = random.nextInt(100);
+            if (type < 60) {
+                rows.add(new Object[]{id, "B", "BOOK " + id, price, stock, "author" + random.nextInt(10_000),
+                        "978" + String.format("%010d", id), null, null, null, null});
+            } else if (type < 85) {
+                rows.add(new Object[]{id, "A", "ALBUM " + id, price, stock, null, null,
+                        "artist" + random.nextInt(5_000), "etc", null, null});
+            } else {
+                rows.add(new Object[]{id, "M", "MOVIE " + id, price, stock, null, null, null, null,
+                        "director" + random.nextInt(2_000), "actor" + random.nextInt(20_000)});
+            }
+            flushIfFull(sql, rows);
+        }
+        flush(sql, rows);
+    }
+
+    /**
+     * 카테고리는 수가 적으므로 한 트랜잭션에서: 10% 는 최상위, 나머지는 최상위 중 하나의 하위.
+     * 상품마다 1~2개 카테고리에 넣는다.
+     */
+    private void insertCategories() {
+        transactionTemplate.executeWithoutResult(status -> {
+            SplittableRandom random = random(CATEGORY, 0);
+            int roots = Math.max(props.getCategories() / 10, 1);
+
+            List<Object[]> rows = new ArrayList<>();
+            for (long id = 1; id <= props.getCategories(); id++) {
+                Long parentId = id <= roots ? null : (long) (1 + random.nextInt(roots));
+                rows.add(new Object[]{id, "CATEGORY " + id, parentId});
+            }
+            jdbcTemplate.batchUpdate("insert into category (category_id, name, parent_id) values (?, ?, ?)", rows);
+
+            String sql = "insert into category_item (category_id, item_id) values (?, ?)";
+            List<Object[]> links = new ArrayList<>(props.getBatchSize());
+            for (long itemId = 1; itemId <= props.getItems(); itemId++) {
+                long first = 1 + skewed(random, props.getCategories());
+                links.add(new Object[]{first, itemId});
+                if (random.nextInt(4) == 0) {
+                    long second = 1 + random.nextInt(props.getCategories());
+                    if (second != first) {
+                        links.add(new Object[]{second, itemId});
+                    }
+                }
+                flushIfFull(sql, links);
+            }
+            flush(sql, links);
+        });
+    }
+
+    /**
+     * 주문 1건 = 배송 1건(delivery_id = 주문 id) + 주문상품 1 ~ maxItemsPerOrder 건
+     * 주문일시는 최근 1년에 퍼뜨리고, 10% 는 취소 상태로 둔다.
+     */
+    private void insertOrders(long fromId, long toId, SplittableRandom random) {
+        String deliverySql = "insert into delivery (delivery_id, city, street, zipcode, status) values (?, ?, ?, ?, ?)";
+        String orderSql = "insert into orders (id, member_id, delivery_id, order_date, status) values (?, ?, ?, ?, ?)";
+        String orderItemSql = "insert into order_item (order_item_id, order_id, item_id, order_price, count) values (?, ?, ?, ?, ?)";
+
+        LocalDateTime epoch = props.getEpoch().withNano(0);   // 실행 시각이 아니라 고정 기준이어야 seed 가 같을 때 주문일도 같다.
+        int maxItems = props.getMaxItemsPerOrder();
+
+        List<Object[]> deliveries = new ArrayList<>();
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> orderItems = new ArrayList<>();
+        for (long id = fromId; id <= toId; id++) {
+            long memberId = 1 + skewed(random, props.getMembers());
+            boolean canceled = random.nextInt(10) == 0;
+            Timestamp orderDate = Timestamp.valueOf(epoch.minusSeconds(random.nextLong(365L * 24 * 3600)));
+
+            deliveries.add(new Object[]{id, CITIES[skewed(random, CITIES.length)], "street" + random.nextInt(1000),
+                    String.format("%05d", random.nextInt(100_000)), random.nextInt(3) == 0 ? "COMP" : "READY"});
+            orders.add(new Object[]{id, memberId, id, orderDate, canceled ? "CANCEL" : "ORDER"});
+
+            int lines = 1 + skewed(random, maxItems);
+            for (int line = 0; line < lines; line++) {
+                long itemId = 1 + skewed(random, props.getItems());
+                orderItems.add(new Object[]{(id - 1) * maxItems + line + 1, id, itemId,
+                        1000 * (1 + random.nextInt(100)), 1 + skewed(random, 5)});
+            }
+
+            if (orders.size() >= props.getBatchSize()) {
+                flush(deliverySql, deliveries);     // FK 순서: 배송 → 주문 → 주문상품
+                flush(orderSql, orders);
+                flush(orderItemSql, orderItems);
+            }
+        }
+        flush(deliverySql, deliveries);
+        flush(orderSql, orders);
+        flush(orderItemSql, orderItems);
+    }
+
+    /**
+     * [0, n) 에서 작은 값으로 쏠린 난수 (u^skew, skew = 1 이면 균등)
+     */
+    private int skewed(SplittableRandom random, int n) {
+        return (int) (n * Math.pow(random.nextDouble(), props.getSkew()));
+    }
+
+    private void flushIfFull(String sql, List<Object[]> rows) {
+        if (rows.size() >= props.getBatchSize()) {
+            flush(sql, rows);
+        }
+    }
+
+    private void flush(String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows);
+            rows.clear();
+        }
+    }
+
+    /**
+     * 직접 부여한 ID 뒤에서 엔티티별 시퀀스가 이어지도록 옮긴다.
+     * (pooled-lo: 시퀀스 값이 다음 할당 구간의 시작이다)
+     */
+    private void advanceSequences() {
+        restart("member_seq", props.getMembers());
+        restart("item_seq", props.getItems());
+        restart("category_seq", props.getCategories());
+        restart("orders_seq", props.getOrders());
+        restart("delivery_seq", props.getOrders());
+        restart("order_item_seq", (long) props.getOrders() * props.getMaxItemsPerOrder());
+    }
+
+    private void restart(String sequence, long maxId) {
+        jdbcTemplate.execute("alter sequence " + sequence + " restart with " + (maxId + 1));
+    }
+}
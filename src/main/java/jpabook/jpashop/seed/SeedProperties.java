@@ -0,0 +1,27 @@
+package jpabook.jpashop.seed;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.LocalDateTime;
+
+/**
+ * jpashop.seed.* (application-seed.yml)
+ */
+@Getter @Setter
+@ConfigurationProperties("jpashop.seed")
+public class SeedProperties {
+
+    private long seed = 42;              // 같은 값이면 같은 데이터
+    private LocalDateTime epoch = LocalDateTime.of(2024, 1, 1, 0, 0);   // 주문일 기준 시각 (이전 1년 안에서 고른다)
+    private int members = 1_000_000;
+    private int items = 100_000;
+    private int categories = 500;
+    private int orders = 2_000_000;
+    private int maxItemsPerOrder = 5;
+    private double skew = 3.0;           // 클수록 인기 회원/상품으로 쏠린다. (1.0 = 균등)
+    private int chunkSize = 20_000;      // 청크 = 트랜잭션 1개
+    private int batchSize = 1_000;       // JDBC batch 크기
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+}
@@ -0,0 +1,15 @@
+package jpabook.jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 대량 주문 한 건
+ */
+@Getter
+@AllArgsConstructor
+public class BulkOrderRequest {
+    private final Long memberId;
+    private final Long itemId;
+    private final int count;
+}
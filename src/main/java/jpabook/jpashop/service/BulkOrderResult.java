@@ -0,0 +1,29 @@
+package jpabook.jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 대량 주문 한 건의 결과 (요청 순서 index 기준)
+ *   성공이면 orderId, 실패면 error (재고부족 등) 가 채워진다.
+ */
+@Getter
+@AllArgsConstructor
+public class BulkOrderResult {
+
+    private final int index;
+    private final Long orderId;
+    private final String error;
+
+    public static BulkOrderResult success(int index, Long orderId) {
+        return new BulkOrderResult(index, orderId, null);
+    }
+
+    public static BulkOrderResult failure(int index, String error) {
+        return new BulkOrderResult(index, null, error);
+    }
+
+    public boolean isSuccess() {
+        return orderId != null;
+    }
+}
@@ -0,0 +1,45 @@
+package jpabook.jpashop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 대량 주문
+ *
+ *   - 요청을 청크로 나눠 청크마다 트랜잭션 1개로 저장한다. (OrderService.orderAll)
+ *   - 청크 안에서 재고부족 등으로 실패한 주문은 건너뛰고 나머지는 저장한다.
+ *   - 청크 자체가 실패(DB 오류)하면 그 청크의 주문만 실패로 돌려주고 다음 청크를 계속한다.
+ */
+@Slf4j
+@Service
+public class BulkOrderService {
+
+    private final OrderService orderService;
+    private final int chunkSize;
+
+    public BulkOrderService(OrderService orderService,
+                            @Value("${jpashop.order.bulk-chunk-size:200}") int chunkSize) {
+        this.orderService = orderService;
+        this.chunkSize = chunkSize;
+    }
+
+    public List<BulkOrderResult> order(List<BulkOrderRequest> requests) {
+        List<BulkOrderResult> results = new ArrayList<>(requests.size());
+        for (int from = 0; from < requests.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, requests.size());
+            try {
+                results.addAll(orderService.orderAll(requests.subList(from, to), from));
+            } catch (RuntimeException e) {
+                log.warn("bulk order chunk [{}, {}) rolled back", from, to, e);
+                for (int i = from; i < to; i++) {
+                    results.add(BulkOrderResult.failure(i, "chunk rolled back: " + e.getMessage()));
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -2,17 +2,24 @@ package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.ItemStockRepository;
+import jpabook.jpashop.repository.order.query.OrderDetailCache;
+import jpabook.jpashop.stock.StockReservationLedger;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 
 @Service
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class ItemService {
     private final ItemRepository itemRepository;
+    private final ItemStockRepository itemStockRepository;
+    private final StockReservationLedger stockLedger;
+    private final OrderDetailCache orderDetailCache;
 
     @Transactional
     public void saveItem(Item item) {
@@ -22,9 +29,14 @@ public class ItemService {
     @Transactional
     public void updateItem(Long itemId, String name, int price, int stockQuantity) {
         Item item = itemRepository.findOne(itemId);
+        if (!Objects.equals(item.getName(), name)) {
+            orderDetailCache.clearNowAndAfterCommit();          // 캐시된 주문 상세에 상품명이 들어 있다.
+        }
         item.setName(name);
         item.setPrice(price);
         item.setStockQuantity(stockQuantity);
+        itemStockRepository.overwrite(item, stockQuantity);   // 재고 컬럼은 변경감지 대상이 아니다.
+        stockLedger.invalidateAfterCommit(itemId);            // 예약 카운터는 다음 예약 때 다시 채운다.
     }
 
     public List<Item> findItems() {
@@ -1,12 +1,25 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.CursorPage;
+import jpabook.jpashop.repository.MemberNameBloomFilter;
+import jpabook.jpashop.repository.MemberNameIndex;
 import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.OrderSearchKey;
+import jpabook.jpashop.repository.OrderSummaryRepository;
+import jpabook.jpashop.repository.member.query.MemberListDto;
+import jpabook.jpashop.repository.member.query.MemberQueryRepository;
+import jpabook.jpashop.repository.order.query.OrderDetailCache;
+import jpabook.jpashop.repository.support.TotalCountCache;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 
 @Service
 @Transactional(readOnly = true)
@@ -15,6 +28,14 @@ public class MemberService {
 
     // 생성자로 사용하되, final 을 사용한다.
     private final MemberRepository memberRepository;
+    private final MemberQueryRepository memberQueryRepository;
+    private final MemberNameIndex memberNameIndex;
+    private final MemberNameBloomFilter memberNameBloomFilter;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final TotalCountCache totalCountCache;
+    private final OrderDetailCache orderDetailCache;
+
+    private static final String MEMBER_COUNT_KEY = "member";
 
 //    @Autowired
 //    public MemberService(MemberRepository memberRepository) {
@@ -23,21 +44,54 @@ public class MemberService {
 
     /**
      * 회원가입
+     *   중복 이름은 Bloom filter 로 먼저 거르고, 동시 가입은 유니크 제약으로 막는다.
      * */
     @Transactional
     public Long join(Member member) {
-        validateDuplicateMember(member);
+        validateDuplicateMember(member.getName());
         memberRepository.save(member);    // 저장 시점에서 member.getId() 값을 생성한다.
+        flushUniqueName();
+        memberNameBloomFilter.put(member.getName());   // 롤백돼도 오탐이 하나 늘 뿐이다.
+        memberNameIndex.putAfterCommit(member.getId(), member.getName());
+        totalCountCache.adjustAfterCommit(key -> MEMBER_COUNT_KEY.equals(key) ? 1 : 0);
         return member.getId();
     }
 
-    private void validateDuplicateMember(Member member) {
-        List<Member> findMembers = memberRepository.findByName(member.getName());
-        if (!findMembers.isEmpty()) {
+    /**
+     * Bloom filter 가 "없다" 면 조회하지 않는다. "있을 수도 있다" 면 회원ID 하나만 조회해서 확인한다.
+     * */
+    private void validateDuplicateMember(String name) {
+        if (name == null || !memberNameBloomFilter.mightContain(name)) {
+            return;
+        }
+        if (memberRepository.existsByName(name)) {
             throw new IllegalStateException("이미 존재하는 회원입니다.");
         }
     }
 
+    /**
+     * insert/update 를 바로 실행해서 이름 유니크 제약 위반을 같은 예외로 바꾼다.
+     * (검사와 저장 사이에 다른 트랜잭션이 같은 이름으로 가입한 경우)
+     * */
+    private void flushUniqueName() {
+        try {
+            memberRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            if (isDuplicateName(e)) {
+                throw new IllegalStateException("이미 존재하는 회원입니다.", e);
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isDuplicateName(DataIntegrityViolationException e) {
+        if (!(e.getCause() instanceof ConstraintViolationException)) {
+            return false;
+        }
+        String constraint = ((ConstraintViolationException) e.getCause()).getConstraintName();
+        return constraint != null && constraint.toLowerCase(Locale.ROOT).contains(Member.UNIQUE_NAME);
+    }
+
     /**
      * 회원 단건 조회
      * */
@@ -64,6 +118,27 @@ public class MemberService {
     }
 
 
+    /**
+     * 회원 목록 (DTO 조회 + 회원ID 키셋 페이징, 이름 접두어 선택)
+     * */
+    public CursorPage<MemberListDto> findMemberPage(String namePrefix, String cursor, int limit) {
+        return memberQueryRepository.findPage(namePrefix, cursor, limit);
+    }
+
+    /**
+     * 회원 이름 자동완성 (접두어)
+     * */
+    public List<String> typeahead(String prefix, int limit) {
+        return memberNameIndex.typeahead(prefix, limit);
+    }
+
+    /**
+     * 전체 회원 수
+     * */
+    public long countMembers(TotalCountCache.Mode mode) {
+        return totalCountCache.get(MEMBER_COUNT_KEY, mode, memberRepository::count);
+    }
+
     //회원 전체 조회
     public List<Member> findMembers() {
         return memberRepository.findAll();
@@ -78,7 +153,17 @@ public class MemberService {
     @Transactional
     public void update(Long id, String name) {
         Member member =memberRepository.findOne(id);
+        if (!Objects.equals(member.getName(), name)) {
+            validateDuplicateMember(name);
+            orderDetailCache.clearNowAndAfterCommit();   // 캐시된 주문 상세에 회원 이름이 들어 있다.
+        }
         member.setName(name);
+        flushUniqueName();
+        memberNameBloomFilter.put(name);
+        orderSummaryRepository.renameMember(id, name);
+        memberNameIndex.putAfterCommit(id, name);
+        // 회원 이름 검색조건의 주문 수는 증감으로 맞출 수 없으므로 버린다.
+        totalCountCache.invalidateAfterCommit(key -> key instanceof OrderSearchKey && ((OrderSearchKey) key).getMemberName() != null);
     }
 
 
@@ -0,0 +1,289 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.OrderIdempotencyKey;
+import jpabook.jpashop.exception.IdempotencyKeyMismatchException;
+import jpabook.jpashop.exception.InvalidRequestException;
+import jpabook.jpashop.repository.OrderIdempotencyKeyRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 주문 요청 멱등 처리 (Idempotency-Key)
+ *
+ *   - 타임아웃 후 재시도로 같은 주문이 두 번 들어와도 주문은 1건만 만든다.
+ *   - 1) 최근 키 -> 주문ID LRU 에 있으면 트랜잭션 없이 바로 돌려준다.
+ *     2) 같은 키가 처리 중이면 새로 주문하지 않고 먼저 온 요청의 결과를 기다린다.
+ *     3) 읽기 트랜잭션으로 키 테이블을 본다. (재기동, LRU 에서 밀려난 경우)
+ *     4) 없으면 주문 + 키 저장을 트랜잭션 1개로. 다른 서버가 먼저 저장했으면 PK 충돌로 롤백되고 그 주문ID 를 돌려준다.
+ *   - 키에는 요청 지문(회원 + 주문 줄)을 함께 둔다. 같은 키로 다른 주문이 오면 어느 단계에서든 422 로 거절한다.
+ *   - 주문이 실패(재고부족 등)하면 키를 남기지 않는다. 같은 키로 다시 시도할 수 있다.
+ *   - 바깥 트랜잭션에 참여했으면 LRU 기억과 기다리던 요청에 결과 전달은 그 트랜잭션이 커밋된 뒤에 한다.
+ *     (롤백되면 없는 주문ID 가 LRU 에 남지 않게)
+ *   - 키 테이블은 보관 기간이 지나면 지운다.
+ */
+@Slf4j
+@Service
+public class OrderIdempotency {
+
+    private final OrderIdempotencyKeyRepository repository;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+    private final long retentionHours;
+
+    private final Map<String, Outcome> recent;
+    private final Map<String, Claim> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder tableHits = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder mismatches = new LongAdder();
+
+    /**
+     * 처리가 끝난 키: 주문ID + 요청 지문
+     */
+    private static final class Outcome {
+        private final Long orderId;
+        private final String fingerprint;
+
+        Outcome(Long orderId, String fingerprint) {
+            this.orderId = orderId;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * 처리 중인 키: 먼저 온 요청의 지문과 결과
+     */
+    private static final class Claim {
+        private final String fingerprint;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        Claim(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    public OrderIdempotency(OrderIdempotencyKeyRepository repository, PlatformTransactionManager transactionManager,
+                            @Value("${jpashop.order.idempotency.cache-size:10000}") int cacheSize,
+                            @Value("${jpashop.order.idempotency.retention-hours:24}") long retentionHours) {
+        this.repository = repository;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.retentionHours = retentionHours;
+        this.recent = new LinkedHashMap<String, Outcome>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Outcome> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * 주문 요청 지문: 회원 + 상품별 수량 (같은 상품 줄은 합치고 상품ID 순으로 정렬)
+     *   줄 순서나 나눠 담은 방식이 달라도 같은 장바구니면 같은 지문이다.
+     */
+    public static String fingerprint(Long memberId, Collection<OrderLine> lines) {
+        SortedMap<Long, Integer> counts = new TreeMap<>();
+        for (OrderLine line : lines) {
+            counts.merge(line.getItemId(), line.getCount(), Integer::sum);
+        }
+        StringBuilder raw = new StringBuilder().append(memberId);
+        counts.forEach((itemId, count) -> raw.append('|').append(itemId).append('x').append(count));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(raw.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param key         Idempotency-Key (null 이나 빈 값이면 멱등 처리 없이 주문)
+     * @param fingerprint 요청 지문 (fingerprint(memberId, lines))
+     * @param order       주문하고 주문ID 를 돌려주는 작업 (이 트랜잭션에 참여한다)
+     * @return 주문ID (재시도면 처음 만든 주문ID)
+     * @throws IdempotencyKeyMismatchException 같은 키로 다른 주문을 보낸 경우
+     */
+    public Long execute(String key, String fingerprint, Supplier<Long> order) {
+        if (key == null || key.isEmpty()) {
+            return order.get();
+        }
+        if (key.length() > OrderIdempotencyKey.MAX_LENGTH) {
+            throw new InvalidRequestException("Idempotency-Key 는 " + OrderIdempotencyKey.MAX_LENGTH + "자 이하여야 합니다.");
+        }
+
+        Outcome cached = cached(key);
+        if (cached != null) {
+            verify(key, cached.fingerprint, fingerprint);
+            cacheHits.increment();
+            return cached.orderId;
+        }
+
+        Claim mine = new Claim(fingerprint);
+        Claim running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            verify(key, running.fingerprint, fingerprint);
+            collapsed.increment();
+            return await(running.result);
+        }
+
+        Long orderId;
+        try {
+            orderId = executeOnce(key, fingerprint, order);
+        } catch (RuntimeException e) {
+            fail(key, mine, e);
+            throw e;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            succeed(key, mine, orderId);
+            return orderId;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    succeed(key, mine, orderId);
+                } else {
+                    fail(key, mine, new IllegalStateException("같은 Idempotency-Key 의 주문이 롤백되었습니다. key=" + key));
+                }
+            }
+        });
+        return orderId;
+    }
+
+    private void succeed(String key, Claim mine, Long orderId) {
+        remember(key, new Outcome(orderId, mine.fingerprint));
+        mine.result.complete(orderId);
+        inFlight.remove(key, mine);
+    }
+
+    private void fail(String key, Claim mine, RuntimeException e) {
+        mine.result.completeExceptionally(e);
+        inFlight.remove(key, mine);
+    }
+
+    private Long executeOnce(String key, String fingerprint, Supplier<Long> order) {
+        OrderIdempotencyKey existing = readTransaction.execute(status -> repository.findOne(key));
+        if (existing != null) {
+            verify(key, existing.getFingerprint(), fingerprint);
+            tableHits.increment();
+            return existing.getOrderId();
+        }
+
+        try {
+            Long orderId = writeTransaction.execute(status -> {
+                Long id = order.get();
+                repository.save(OrderIdempotencyKey.of(key, fingerprint, id));
+                return id;
+            });
+            executed.increment();
+            return orderId;
+        } catch (DataIntegrityViolationException e) {
+            // 다른 서버가 같은 키로 먼저 커밋했다. (replica 지연을 피하려고 쓰기 트랜잭션에서 다시 읽는다)
+            OrderIdempotencyKey winner = writeTransaction.execute(status -> repository.findOne(key));
+            if (winner == null) {
+                throw e;
+            }
+            verify(key, winner.getFingerprint(), fingerprint);
+            conflicts.increment();
+            return winner.getOrderId();
+        }
+    }
+
+    private void verify(String key, String stored, String requested) {
+        if (!Objects.equals(stored, requested)) {
+            mismatches.increment();
+            throw new IdempotencyKeyMismatchException("Idempotency-Key 가 다른 주문 요청에 이미 사용되었습니다. key=" + key);
+        }
+    }
+
+    private static Long await(CompletableFuture<Long> running) {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("같은 Idempotency-Key 의 주문을 기다리다 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private Outcome cached(String key) {
+        synchronized (recent) {
+            return recent.get(key);
+        }
+    }
+
+    private void remember(String key, Outcome outcome) {
+        synchronized (recent) {
+            recent.put(key, outcome);
+        }
+    }
+
+    /**
+     * 보관 기간이 지난 키 삭제 (LRU 에 남은 키는 그대로 응답된다)
+     */
+    @Scheduled(fixedDelayString = "${jpashop.order.idempotency.purge-interval-ms:3600000}")
+    public void purge() {
+        Integer deleted = writeTransaction.execute(status ->
+                repository.deleteCreatedBefore(LocalDateTime.now().minusHours(retentionHours)));
+        if (deleted != null && deleted > 0) {
+            log.info("idempotency keys purged. rows={}", deleted);
+        }
+    }
+
+    public Stats stats() {
+        int size;
+        synchronized (recent) {
+            size = recent.size();
+        }
+        return new Stats(size, inFlight.size(), cacheHits.sum(), tableHits.sum(), collapsed.sum(),
+                executed.sum(), conflicts.sum(), mismatches.sum());
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private int cached;
+        private int inFlight;
+        private long cacheHits;     // LRU 로 응답 (트랜잭션 없음)
+        private long tableHits;     // 키 테이블로 응답
+        private long collapsed;     // 처리 중인 같은 키를 기다려서 응답
+        private long executed;      // 실제 주문
+        private long conflicts;     // 다른 서버와 PK 충돌
+        private long mismatches;    // 같은 키, 다른 주문 (422)
+    }
+}
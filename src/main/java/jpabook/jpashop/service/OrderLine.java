@@ -0,0 +1,14 @@
+package jpabook.jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 장바구니 주문의 한 줄 (상품, 수량)
+ */
+@Getter
+@AllArgsConstructor
+public class OrderLine {
+    private final Long itemId;
+    private final int count;
+}
@@ -0,0 +1,66 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.repository.order.query.OrderDetailCache;
+import jpabook.jpashop.repository.order.query.OrderFlatAssembler;
+import jpabook.jpashop.repository.order.query.OrderFlatDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 조회 전용 서비스 (화면/API 에 맞춘 DTO 조회)
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderQueryService {
+
+    private final OrderQueryRepository orderQueryRepository;
+    private final OrderDetailCache orderDetailCache;
+
+    /**
+     * 주문 상세
+     * 캐시에 있으면 DB 를 거치지 않고, 없으면 쿼리 1번으로 조립해서 캐시에 넣는다.
+     * @return 없으면 null
+     */
+    public OrderQueryDto findOrderDetail(Long orderId) {
+        OrderQueryDto cached = orderDetailCache.get(orderId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long stamp = orderDetailCache.stamp();
+        OrderQueryDto order = orderQueryRepository.findOrderDetail(orderId);
+        if (order != null) {
+            orderDetailCache.putIfFresh(order, stamp);
+        }
+        return order;
+    }
+
+    /**
+     * 주문 내보내기
+     * 플랫 조인 로우를 스트림으로 읽으면서 주문번호가 바뀔 때마다 완성된 주문을 sink 로 넘긴다.
+     * 메모리에는 현재 조립 중인 주문 하나만 남으므로 테이블 크기와 무관하게 일정하다.
+     * (DTO 프로젝션이라 영속성 컨텍스트에 쌓이는 엔티티가 없으므로 중간에 비울 필요도 없다)
+     *
+     * @return 내보낸 주문 건수
+     */
+    public long exportOrders(Consumer<OrderQueryDto> sink) {
+        long[] exported = {0};
+        OrderFlatAssembler assembler = new OrderFlatAssembler(order -> {
+            sink.accept(order);
+            exported[0]++;
+        });
+
+        try (Stream<OrderFlatDto> rows = orderQueryRepository.streamAllByDto_flat()) {
+            rows.forEach(assembler);
+        }
+        assembler.finish();
+        return exported[0];
+    }
+}
@@ -4,25 +4,55 @@ import jpabook.jpashop.domain.Delivery;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.CursorPage;
+import jpabook.jpashop.repository.FetchPlan;
 import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.ItemStockRepository;
 import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.OrderCursor;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSearchKey;
+import jpabook.jpashop.repository.OrderSummaryRepository;
+import jpabook.jpashop.repository.order.query.OrderDetailCache;
+import jpabook.jpashop.repository.support.TotalCountCache;
+import jpabook.jpashop.stock.StockReservationLedger;
+import jpabook.jpashop.exception.NotEnoughStockException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 
 @Service
 @Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class OrderService {
 
+    private static final int CANCEL_CHUNK_SIZE = 500;   // 일괄 취소 시 한 번에 잠그고 update 할 주문 수
+
     private final OrderRepository orderRepository;
     private final MemberRepository memberRepository;
     private final ItemRepository itemRepository;
+    private final ItemStockRepository itemStockRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final OrderDetailCache orderDetailCache;
+    private final TotalCountCache totalCountCache;
+    private final StockReservationLedger stockLedger;
 
     /**
      * 도메인 모델 패턴 : 주문하기
@@ -35,41 +65,256 @@ public class OrderService {
         Member member = memberRepository.findOne(memberId);
         Item item = itemRepository.findOne(itemId);
 
+        return place(member, createOrderItem(item, count));
+    }
+
+    /**
+     * 장바구니 주문: 여러 상품을 주문 1건으로
+     *   - 같은 상품이 여러 줄이면 수량을 합친다.
+     *   - 상품은 쿼리 1번으로 조회하고, 재고는 상품ID 순서대로 차감한다.
+     *     조건부 update 가 행 잠금을 잡는 순서가 항상 같으므로 동시에 들어온 장바구니끼리 교착되지 않는다.
+     *   - 재고가 하나라도 부족하면 주문 전체가 롤백된다.
+     * */
+    @Transactional
+    public Long order(Long memberId, List<OrderLine> lines) {
+        Member member = memberRepository.findOne(memberId);
+        if (member == null) {
+            throw new IllegalArgumentException("회원이 없습니다. memberId=" + memberId);
+        }
+
+        // 상품ID 순으로 정렬 + 같은 상품 수량 합치기
+        SortedMap<Long, Integer> counts = new TreeMap<>();
+        for (OrderLine line : lines) {
+            counts.merge(line.getItemId(), line.getCount(), Integer::sum);
+        }
+
+        Map<Long, Item> items = itemRepository.findAllById(counts.keySet()).stream()
+                .collect(toMap(Item::getId, i -> i));
+        if (items.size() != counts.size()) {
+            throw new IllegalArgumentException("없는 상품이 있습니다. itemIds=" + counts.keySet());
+        }
+
+        List<OrderItem> orderItems = new ArrayList<>(items.size());
+        counts.forEach((itemId, count) -> orderItems.add(createOrderItem(items.get(itemId), count)));
+        return place(member, orderItems.toArray(new OrderItem[0]));
+    }
+
+    /**
+     * 대량 주문 (청크 1개 = 트랜잭션 1개, BulkOrderService 에서 호출)
+     *   - 청크에 나오는 회원, 상품을 IN 쿼리 1번씩으로 미리 조회한다.
+     *   - 재고는 주문마다 조건부 update 로 차감한다. 실패한 주문은 재고를 바꾸지 않는다.
+     *   - 재고부족, 없는 회원/상품은 해당 주문만 실패로 돌려준다.
+     *   - 저장은 커밋 시 한 번에 flush 되어 jdbc batch 로 나간다.
+     *
+     * @param offset 결과 index 시작값 (전체 요청에서 청크의 위치)
+     * */
+    @Transactional
+    public List<BulkOrderResult> orderAll(List<BulkOrderRequest> requests, int offset) {
+        Map<Long, Member> members = memberRepository.findAllById(
+                requests.stream().map(BulkOrderRequest::getMemberId).collect(toSet())).stream()
+                .collect(toMap(Member::getId, m -> m));
+        Map<Long, Item> items = itemRepository.findAllById(
+                requests.stream().map(BulkOrderRequest::getItemId).collect(toSet())).stream()
+                .collect(toMap(Item::getId, i -> i));
+
+        List<BulkOrderResult> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            BulkOrderRequest request = requests.get(i);
+            Member member = members.get(request.getMemberId());
+            Item item = items.get(request.getItemId());
+            if (member == null || item == null) {
+                results.add(BulkOrderResult.failure(offset + i, member == null ? "회원이 없습니다." : "상품이 없습니다."));
+                continue;
+            }
+            try {
+                results.add(BulkOrderResult.success(offset + i, place(member, createOrderItem(item, request.getCount()))));
+            } catch (NotEnoughStockException e) {
+                results.add(BulkOrderResult.failure(offset + i, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 주문상품 생성 + 재고 차감
+     *   DB 조건부 update 로 먼저 차감하고 (0 row 면 재고부족), 성공한 뒤에 엔티티의 재고(사본)를 맞춘다.
+     *   사본은 청크 시작 시점 값이라 그 사이 취소/입고가 커밋됐으면 실제보다 적을 수 있으므로 판정에 쓰지 않는다.
+     *   예약 원장을 켜면 item 행 대신 메모리 카운터에서 빼고 확정 기록만 남긴다.
+     * */
+    private OrderItem createOrderItem(Item item, int count) {
+        if (stockLedger.isEnabled()) {
+            stockLedger.reserveAndConfirm(item.getId(), count);
+        } else if (!itemStockRepository.decrease(item, count)) {
+            throw new NotEnoughStockException("Not Enough Stocks~!");
+        }
+        return OrderItem.createDeductedOrderItem(item, item.getPrice(), count);
+    }
+
+    /**
+     * 주문 생성 + 저장 (주문상품은 재고 차감까지 끝난 상태)
+     * */
+    private Long place(Member member, OrderItem... orderItems) {
         // 배송정보 생성
         Delivery delivery = new Delivery();
         delivery.setAddress(member.getAddress());  // 회원정보에서 주소를 가져온다.
 
-        // 주문상품 생성
-        OrderItem orderItem = OrderItem.createOrderItem(item,item.getPrice(),count);
-
         // 주문정보 생성
-        Order order  = Order.createOrder(member, delivery, orderItem);
+        Order order  = Order.createOrder(member, delivery, orderItems);
 
         // CASCADE로 묶여 있을 시에,
         // 주문 저장 시 배송, 주문상품 등도 모두 동시에 저장 됨.
         orderRepository.save(order);
 
+        // 목록 조회용 요약도 같은 트랜잭션에서 저장
+        orderSummaryRepository.save(OrderSummary.of(order));
+        adjustOrderCounts(null, OrderStatus.ORDER, member.getName());
+
         return order.getId();
     }
 
     /**
      * 도메인 모델 패턴 : 취소하기
-     *
+     *   주문 행을 잠그고, 회원/배송/주문상품/상품을 쿼리 1번으로 조회한 뒤
+     *   재고는 상품마다 update 1번으로 복구한다.
      * */
     @Transactional
     public void cancelOrder(Long orderId) {
-        //주문 엔티티 조회
-        Order order = orderRepository.findOne(orderId);
-        //주문 취소
+        // 이미 취소된 주문이면 빈 목록
+        if (orderRepository.lockForCancel(Collections.singletonList(orderId)).isEmpty()) {
+            throw new IllegalStateException("이미 취소되었거나 없는 주문입니다. orderId=" + orderId);
+        }
+        Order order = orderRepository.findOneForCancel(orderId);
+
+        //주문 취소 (엔티티 재고 사본 복구) + DB 재고 복구
         order.cancel();
+        SortedMap<Long, Integer> quantities = new TreeMap<>();
+        for (OrderItem orderItem : order.getOrderItems()) {
+            quantities.merge(orderItem.getItem().getId(), orderItem.getCount(), Integer::sum);
+        }
+        restoreStock(quantities);
+
+        orderSummaryRepository.updateStatus(orderId, order.getStatus());
+        orderDetailCache.evictNowAndAfterCommit(orderId);
+        adjustOrderCounts(OrderStatus.ORDER, OrderStatus.CANCEL, order.getMember().getName());
+    }
+
+    /**
+     * 일괄 취소 (트랜잭션 1개)
+     *   - 주문ID 순으로 CANCEL_CHUNK_SIZE 개씩 잠그고 update 한 문장으로 상태를 바꾼다. (엔티티를 조회하지 않는다)
+     *   - 재고 복구는 모든 청크의 수량을 상품별로 합쳐서 마지막에 상품ID 순으로 update 1번씩.
+     *   - 이미 취소, 배송완료, 없는 주문은 건너뛴다.
+     *
+     * @return 취소한 주문ID
+     * */
+    @Transactional
+    public List<Long> cancelOrders(Collection<Long> orderIds) {
+        List<Long> ids = new ArrayList<>(new TreeSet<>(orderIds));
+        List<Long> cancelled = new ArrayList<>();
+        SortedMap<Long, Integer> quantities = new TreeMap<>();
+        Map<String, Long> countsByMember = new HashMap<>();
+
+        for (int from = 0; from < ids.size(); from += CANCEL_CHUNK_SIZE) {
+            List<Long> chunk = orderRepository.lockForCancel(ids.subList(from, Math.min(from + CANCEL_CHUNK_SIZE, ids.size())));
+            if (!chunk.isEmpty()) {
+                chunk.removeAll(orderRepository.findDeliveredIds(chunk));
+            }
+            if (chunk.isEmpty()) {
+                continue;
+            }
+            for (Object[] row : orderRepository.sumCountByItem(chunk)) {
+                quantities.merge((Long) row[0], ((Number) row[1]).intValue(), Integer::sum);
+            }
+            for (Object[] row : orderRepository.countByMemberName(chunk)) {
+                countsByMember.merge((String) row[0], (Long) row[1], Long::sum);
+            }
+            orderRepository.updateStatus(chunk, OrderStatus.CANCEL);
+            orderSummaryRepository.updateStatus(chunk, OrderStatus.CANCEL);
+            cancelled.addAll(chunk);
+        }
+
+        restoreStock(quantities);
+        orderDetailCache.evictAllNowAndAfterCommit(cancelled);
+        adjustOrderCounts(OrderStatus.ORDER, OrderStatus.CANCEL, countsByMember);
+        return cancelled;
     }
 
+    /**
+     * 상품ID 순으로 상품마다 한 번씩 재고 복구 (예약 원장을 켜면 복구 기록만 남긴다)
+     * */
+    private void restoreStock(SortedMap<Long, Integer> quantities) {
+        quantities.forEach((itemId, quantity) -> {
+            if (stockLedger.isEnabled()) {
+                stockLedger.restock(itemId, quantity);
+            } else {
+                itemStockRepository.increase(itemId, quantity);
+            }
+        });
+    }
+
+    /**
+     * 검색조건별 주문 수 캐시를 커밋 후 증감
+     * */
+    private void adjustOrderCounts(OrderStatus from, OrderStatus to, String memberName) {
+        adjustOrderCounts(from, to, Collections.singletonMap(memberName, 1L));
+    }
+
+    private void adjustOrderCounts(OrderStatus from, OrderStatus to, Map<String, Long> countsByMember) {
+        if (countsByMember.isEmpty()) {
+            return;
+        }
+        totalCountCache.adjustAfterCommit(key -> {
+            if (!(key instanceof OrderSearchKey)) {
+                return 0;
+            }
+            long delta = 0;
+            for (Map.Entry<String, Long> entry : countsByMember.entrySet()) {
+                delta += ((OrderSearchKey) key).delta(from, to, entry.getKey()) * entry.getValue();
+            }
+            return delta;
+        });
+    }
+
+    /**
+     * 주문 목록 요약(order_summary) 다시 채우기
+     * */
+    @Transactional
+    public int rebuildOrderSummary() {
+        return orderSummaryRepository.rebuild();
+    }
+
+
+    /**
+     * 검색조건에 맞는 전체 주문 수
+     *   ESTIMATED: 캐시 값 (없으면 count 쿼리)
+     *   EXACT: 항상 count 쿼리
+     * */
+    public long countOrders(OrderSearch orderSearch, TotalCountCache.Mode mode) {
+        OrderSearchKey key = OrderSearchKey.of(orderSearch);
+        return totalCountCache.get(key, mode, () -> orderRepository.count(key.toOrderSearch()));
+    }
+
+    /**
+     * 검색하기 (키셋 페이징)
+     * */
+    public CursorPage<Order> findOrders(OrderSearch orderSearch, OrderCursor cursor, int limit) {
+        // 주문 목록 화면은 회원, 첫 주문상품의 상품명까지 보여준다.
+        return findOrders(orderSearch, cursor, limit, FetchPlan.ORDER_DETAIL);
+    }
+
+    /**
+     * 검색하기 (키셋 페이징 + fetch plan)
+     *   루트 쿼리와 컬렉션 쿼리가 같은 영속성 컨텍스트에서 실행되어야 컬렉션이 페이지의 주문들에 채워진다.
+     *   (OSIV 를 끄면 트랜잭션 밖의 리포지토리 호출은 쿼리마다 영속성 컨텍스트가 따로 생긴다)
+     * */
+    public CursorPage<Order> findOrders(OrderSearch orderSearch, OrderCursor cursor, int limit, FetchPlan plan) {
+        return orderRepository.findAllByString(orderSearch, cursor, limit, plan);
+    }
 
     /**
-     * 검색하기
+     * 전체 주문 (fetch plan)
      * */
-    public List<Order> findOrders(OrderSearch orderSearch) {
-        return orderRepository.findAllByString(orderSearch);
+    public List<Order> findOrders(FetchPlan plan) {
+        return orderRepository.findAll(plan);
     }
 
 
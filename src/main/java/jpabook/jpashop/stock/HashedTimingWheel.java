@@ -0,0 +1,91 @@
+package jpabook.jpashop.stock;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 해시 타이밍 휠: 만료 시각이 있는 항목을 칸(slot)에 나눠 두고 한 칸씩 넘기며 만료시킨다.
+ *
+ *   - 등록/만료 모두 O(1). 예약마다 타이머를 만들거나 만료 시각 순 정렬(PriorityQueue)을 유지하지 않는다.
+ *   - 만료 틱 = 지금 틱 + ceil(지연 / tickMs), 칸 = 만료 틱 % wheelSize.
+ *     한 바퀴보다 긴 지연은 같은 칸에 두고 만료 틱이 될 때까지 지나친다.
+ *   - 만료는 최대 tickMs 만큼 늦을 수 있다. 등록과 틱이 겹치면 드물게 한 바퀴 늦는다. (예약 TTL 용도로는 충분)
+ *   - 이미 확정/해제된 항목은 지우지 않는다. 만료 시 콜백에서 상태를 보고 무시한다.
+ */
+@Slf4j
+class HashedTimingWheel<T> implements AutoCloseable {
+
+    private static class Entry<T> {
+        private final T item;
+        private final long deadlineTick;
+
+        Entry(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private final long tickMs;
+    private final int mask;
+    private final Queue<Entry<T>>[] slots;
+    private final Consumer<T> onExpire;
+    private final ScheduledExecutorService ticker;
+    private volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    HashedTimingWheel(long tickMs, int wheelSize, Consumer<T> onExpire) {
+        this.tickMs = Math.max(1, tickMs);
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) * 2 - 1);   // 2의 거듭제곱으로 올림
+        this.mask = size - 1;
+        this.slots = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.onExpire = onExpire;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stock-hold-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, this.tickMs, this.tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    void schedule(T item, long delayMs) {
+        // 최소 다음 틱: 지금 돌고 있는 칸에 넣으면 한 바퀴 뒤에야 만료된다.
+        long deadlineTick = currentTick + Math.max(1, (delayMs + tickMs - 1) / tickMs);
+        slots[(int) (deadlineTick & mask)].add(new Entry<>(item, deadlineTick));
+    }
+
+    /**
+     * 한 칸 넘기기 (ticker 스레드 하나에서만 호출)
+     */
+    void tick() {
+        long tick = currentTick + 1;
+        Iterator<Entry<T>> it = slots[(int) (tick & mask)].iterator();
+        while (it.hasNext()) {
+            Entry<T> entry = it.next();
+            if (entry.deadlineTick > tick) {
+                continue;
+            }
+            it.remove();
+            try {
+                onExpire.accept(entry.item);
+            } catch (RuntimeException e) {
+                log.warn("hold expire failed. item={}", entry.item, e);
+            }
+        }
+        currentTick = tick;
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+}
@@ -0,0 +1,57 @@
+package jpabook.jpashop.stock;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 재고 예약 1건
+ *
+ *   PENDING ─ confirm ─> CONFIRMING ─ 커밋 ─> CONFIRMED
+ *      │                     └─ 롤백 ─> RELEASED
+ *      ├─ release ─> RELEASED
+ *      └─ TTL 경과 ─> EXPIRED
+ *
+ *   상태는 CAS 로만 바꾸므로 확정과 만료가 겹쳐도 한쪽만 이긴다.
+ */
+@Getter
+public class StockHold {
+
+    public enum State {
+        PENDING, CONFIRMING, CONFIRMED, RELEASED, EXPIRED
+    }
+
+    private final long id;
+    private final Long itemId;
+    private final int quantity;
+    private final long expiresAt;       // epoch millis
+    private final AtomicReference<State> state = new AtomicReference<>(State.PENDING);
+
+    StockHold(long id, Long itemId, int quantity, long expiresAt) {
+        this.id = id;
+        this.itemId = itemId;
+        this.quantity = quantity;
+        this.expiresAt = expiresAt;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    boolean transit(State from, State to) {
+        return state.compareAndSet(from, to);
+    }
+
+    /**
+     * 아직 재고를 잡고 있는 상태 (대사 시 예약분으로 뺀다)
+     */
+    boolean isHolding() {
+        State current = state.get();
+        return current == State.PENDING || current == State.CONFIRMING;
+    }
+
+    @Override
+    public String toString() {
+        return "StockHold{id=" + id + ", itemId=" + itemId + ", quantity=" + quantity + ", state=" + state.get() + "}";
+    }
+}
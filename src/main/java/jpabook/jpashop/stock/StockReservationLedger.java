@@ -0,0 +1,409 @@
+package jpabook.jpashop.stock;
+
+import jpabook.jpashop.domain.StockConfirmation;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 메모리 재고 예약 원장 (jpashop.stock.reservation.enabled=true 일 때)
+ *
+ *   - 주문 트랜잭션은 item 행을 update 하지 않는다. 인기 상품 행 잠금에 주문이 줄 서지 않게 하기 위함.
+ *     1) reserve : 상품별 메모리 카운터에서 CAS 로 뺀다. (StripedStockCounter, 모자라면 재고부족)
+ *     2) confirm : 같은 트랜잭션에 확정 기록(stock_confirmation) 한 줄을 남긴다. 롤백되면 카운터에 돌려준다.
+ *     3) flush   : 주기적으로 확정 기록을 상품별로 합쳐 item.stock_quantity 에 반영하고 기록을 지운다. (write-behind)
+ *   - 확정되지 않은 예약은 TTL 이 지나면 타이밍 휠에서 풀어준다.
+ *   - 카운터 = item.stock_quantity - 반영 안 된 확정 기록 합 - 잡고 있는 예약. 상품을 처음 예약할 때 DB 에서 채운다.
+ *   - 재기동 시: 예약은 메모리에만 있었으므로 저절로 풀린 셈이고, 남은 확정 기록만 item 에 반영하면 된다.
+ *   - 주기적으로 위 식과 카운터를 대사해서, 두 번 연속 같은 차이가 나면 카운터를 맞춘다.
+ *   - 애플리케이션 1대 기준이다. (여러 대면 카운터가 각자 전체 재고를 가진다)
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(StockReservationProperties.class)
+public class StockReservationLedger implements DisposableBean {
+
+    private static final String AVAILABLE_SQL =
+            "select i.item_id, i.stock_quantity - coalesce(c.quantity, 0) from item i" +
+            " left join (select item_id, sum(quantity) quantity from stock_confirmation group by item_id) c" +
+            " on c.item_id = i.item_id";
+
+    private final StockReservationProperties props;
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final HashedTimingWheel<StockHold> wheel;
+
+    private final Map<Long, StripedStockCounter> counters = new ConcurrentHashMap<>();
+    private final Map<Long, StockHold> holds = new ConcurrentHashMap<>();
+    private final Map<Long, Long> suspects = new ConcurrentHashMap<>();   // 대사 차이가 한 번 난 상품
+    private final Map<Long, LongAdder> confirmedQuantities = new ConcurrentHashMap<>();   // 상품별 누적 확정 수량 (카운터 채우기용)
+    private final AtomicLong holdIds = new AtomicLong();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final LongAdder reserved = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder confirmed = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder corrections = new LongAdder();
+
+    public StockReservationLedger(StockReservationProperties props, EntityManager em, EntityManagerFactory emf,
+                                  JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.props = props;
+        this.em = em;
+        this.emf = emf;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.wheel = props.isEnabled()
+                ? new HashedTimingWheel<>(props.getTickMs(), props.getWheelSize(), this::expire)
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return props.isEnabled();
+    }
+
+    /**
+     * 재고 예약 (TTL 안에 confirm 또는 release 해야 한다)
+     *
+     * @throws NotEnoughStockException 예약 가능 수량 부족
+     */
+    public StockHold reserve(Long itemId, int quantity) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("재고 예약 원장이 꺼져 있습니다. (jpashop.stock.reservation.enabled)");
+        }
+        if (!counter(itemId).tryAcquire(quantity)) {
+            rejected.increment();
+            throw new NotEnoughStockException("Not Enough Stocks~!");
+        }
+        long ttl = props.getHoldTtlMs();
+        StockHold hold = new StockHold(holdIds.incrementAndGet(), itemId, quantity, System.currentTimeMillis() + ttl);
+        holds.put(hold.getId(), hold);
+        wheel.schedule(hold, ttl);
+        reserved.increment();
+        return hold;
+    }
+
+    /**
+     * 예약 확정: 현재 트랜잭션에 확정 기록을 남긴다.
+     *   커밋되면 확정, 롤백되면 예약분을 카운터에 돌려준다.
+     *
+     * @throws NotEnoughStockException 예약이 이미 만료되었거나 처리됨 (그 주문만 재고부족으로 실패시킨다)
+     */
+    public void confirm(StockHold hold) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("재고 확정은 트랜잭션 안에서 해야 합니다.");
+        }
+        if (!hold.transit(StockHold.State.PENDING, StockHold.State.CONFIRMING)) {
+            throw new NotEnoughStockException("만료되었거나 이미 처리된 예약입니다. " + hold);
+        }
+        try {
+            em.persist(StockConfirmation.of(hold.getItemId(), hold.getQuantity()));
+        } catch (RuntimeException e) {
+            hold.transit(StockHold.State.CONFIRMING, StockHold.State.RELEASED);
+            giveBack(hold);
+            throw e;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    // 잡고 있는 예약에서 빠지기 전에 먼저 센다. (counter() 참고)
+                    confirmedQuantities.computeIfAbsent(hold.getItemId(), id -> new LongAdder()).add(hold.getQuantity());
+                    if (hold.transit(StockHold.State.CONFIRMING, StockHold.State.CONFIRMED)) {
+                        holds.remove(hold.getId());
+                        confirmed.increment();
+                    }
+                } else if (hold.transit(StockHold.State.CONFIRMING, StockHold.State.RELEASED)) {
+                    giveBack(hold);
+                    released.increment();
+                }
+            }
+        });
+    }
+
+    /**
+     * reserve + confirm
+     */
+    public void reserveAndConfirm(Long itemId, int quantity) {
+        StockHold hold = reserve(itemId, quantity);
+        try {
+            confirm(hold);
+        } catch (RuntimeException e) {
+            release(hold);
+            throw e;
+        }
+    }
+
+    /**
+     * 확정 전 예약 취소
+     */
+    public void release(StockHold hold) {
+        if (hold.transit(StockHold.State.PENDING, StockHold.State.RELEASED)) {
+            giveBack(hold);
+            released.increment();
+        }
+    }
+
+    /**
+     * 재고 복구 (주문 취소): 음수 확정 기록을 남기고 커밋 후에 카운터에 더한다.
+     */
+    public void restock(Long itemId, int quantity) {
+        em.persist(StockConfirmation.of(itemId, -quantity));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                StripedStockCounter counter = counters.get(itemId);
+                if (counter != null) {
+                    counter.release(quantity);
+                }
+            }
+        });
+    }
+
+    /**
+     * 재고를 직접 덮어쓴 상품은 커밋 후 카운터를 버린다. (다음 예약 때 DB 에서 다시 채운다)
+     *   반영 안 된 확정 기록은 덮어쓴 값에서 다시 빠진다.
+     */
+    public void invalidateAfterCommit(Long itemId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            counters.remove(itemId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                counters.remove(itemId);
+            }
+        });
+    }
+
+    private void expire(StockHold hold) {
+        if (hold.transit(StockHold.State.PENDING, StockHold.State.EXPIRED)) {
+            giveBack(hold);
+            expired.increment();
+            log.debug("stock hold expired. {}", hold);
+        }
+    }
+
+    /**
+     * 카운터는 잡고 있는 예약을 빼고 채워지므로 다시 만들어졌어도 그대로 돌려준다.
+     * (카운터가 없으면 다음에 채울 때 반영된다)
+     */
+    private void giveBack(StockHold hold) {
+        holds.remove(hold.getId());
+        StripedStockCounter counter = counters.get(hold.getItemId());
+        if (counter != null) {
+            counter.release(hold.getQuantity());
+        }
+    }
+
+    /**
+     * 상품 카운터 (없으면 DB 에서 채운다)
+     *   DB 조회와 잡고 있는 예약 스냅샷은 시점이 다르다. 그 사이 커밋된 확정은 조회 때 기록이 안 보였는데
+     *   스냅샷에서도 빠져서 한 번도 안 빼질 수 있다. 그래서 그 사이 확정된 수량(누적 확정 수량의 차이)을 한 번 더 뺀다.
+     *   조회 때 이미 보였던 확정이면 두 번 빠지지만 적게 잡히는 쪽이라 초과판매는 없고, 대사가 맞춘다.
+     */
+    private StripedStockCounter counter(Long itemId) {
+        StripedStockCounter counter = counters.get(itemId);
+        if (counter != null) {
+            return counter;
+        }
+        long confirmedBefore = confirmedQuantity(itemId);
+        long available = loadAvailable(itemId) - holdingQuantities().getOrDefault(itemId, 0L)
+                - (confirmedQuantity(itemId) - confirmedBefore);
+        StripedStockCounter created = new StripedStockCounter(available, props.getStripes());
+        StripedStockCounter existing = counters.putIfAbsent(itemId, created);
+        return existing != null ? existing : created;
+    }
+
+    private long confirmedQuantity(Long itemId) {
+        LongAdder quantity = confirmedQuantities.get(itemId);
+        return quantity == null ? 0 : quantity.sum();
+    }
+
+    private long loadAvailable(Long itemId) {
+        List<Long> rows = jdbcTemplate.query(AVAILABLE_SQL + " where i.item_id = ?",
+                (rs, rowNum) -> rs.getLong(2), itemId);
+        return rows.isEmpty() ? 0 : rows.get(0);
+    }
+
+    private Map<Long, Long> holdingQuantities() {
+        Map<Long, Long> quantities = new HashMap<>();
+        for (StockHold hold : holds.values()) {
+            if (hold.isHolding()) {
+                quantities.merge(hold.getItemId(), (long) hold.getQuantity(), Long::sum);
+            }
+        }
+        return quantities;
+    }
+
+    /**
+     * 재기동 복구: 이전 실행에서 반영 못 한 확정 기록을 먼저 item 에 반영한다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        if (!isEnabled()) {
+            return;
+        }
+        int rows = flush();
+        if (rows > 0) {
+            log.info("stock confirmations recovered. rows={}", rows);
+        }
+    }
+
+    /**
+     * 확정 기록을 상품별로 합쳐서 item 에 반영 (write-behind)
+     *
+     * @return 반영한 확정 기록 수
+     */
+    @Scheduled(fixedDelayString = "${jpashop.stock.reservation.flush-interval-ms:200}")
+    public int flush() {
+        if (!isEnabled() || !flushLock.tryLock()) {
+            return 0;
+        }
+        try {
+            int total = 0;
+            int rows;
+            do {
+                rows = flushBatch();
+                total += rows;
+            } while (rows == props.getFlushBatchSize());
+            return total;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int flushBatch() {
+        Integer flushed = transactionTemplate.execute(status -> {
+            List<long[]> rows = jdbcTemplate.query(
+                    "select stock_confirmation_id, item_id, quantity from stock_confirmation" +
+                    " order by stock_confirmation_id limit ?",
+                    (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2), rs.getLong(3)},
+                    props.getFlushBatchSize());
+            if (rows.isEmpty()) {
+                return 0;
+            }
+
+            // 상품ID 순으로 update (다른 재고 update 와 행 잠금 순서를 맞춘다)
+            SortedMap<Long, Long> quantities = new TreeMap<>();
+            List<Object[]> ids = new ArrayList<>(rows.size());
+            for (long[] row : rows) {
+                quantities.merge(row[1], row[2], Long::sum);
+                ids.add(new Object[]{row[0]});
+            }
+            List<Object[]> updates = new ArrayList<>(quantities.size());
+            quantities.forEach((itemId, quantity) -> updates.add(new Object[]{quantity, itemId}));
+
+            jdbcTemplate.batchUpdate("update item set stock_quantity = stock_quantity - ? where item_id = ?", updates);
+            jdbcTemplate.batchUpdate("delete from stock_confirmation where stock_confirmation_id = ?", ids);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    quantities.keySet().forEach(itemId -> emf.getCache().evict(Item.class, itemId));
+                }
+            });
+            return rows.size();
+        });
+        int count = flushed == null ? 0 : flushed;
+        flushedRows.add(count);
+        return count;
+    }
+
+    /**
+     * 대사: DB 기준 예약 가능 수량과 카운터 비교
+     *   확정 커밋 직후 등 순간적으로 어긋날 수 있으므로 두 번 연속 같은 차이일 때만 카운터를 맞춘다.
+     */
+    @Scheduled(fixedDelayString = "${jpashop.stock.reservation.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        if (!isEnabled() || counters.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> available = new HashMap<>();
+        jdbcTemplate.query(AVAILABLE_SQL, rs -> {
+            long itemId = rs.getLong(1);
+            if (counters.containsKey(itemId)) {
+                available.put(itemId, rs.getLong(2));
+            }
+        });
+        Map<Long, Long> holding = holdingQuantities();
+
+        counters.forEach((itemId, counter) -> {
+            long expected = available.getOrDefault(itemId, 0L) - holding.getOrDefault(itemId, 0L);
+            long delta = expected - counter.available();
+            if (delta == 0) {
+                suspects.remove(itemId);
+                return;
+            }
+            Long previous = suspects.put(itemId, delta);
+            if (previous != null && previous == delta) {
+                counter.adjust(delta);
+                suspects.remove(itemId);
+                corrections.increment();
+                log.warn("stock counter reconciled. itemId={} delta={}", itemId, delta);
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        if (wheel != null) {
+            wheel.close();
+        }
+    }
+
+    public Stats stats() {
+        Long backlog = isEnabled()
+                ? jdbcTemplate.queryForObject("select count(*) from stock_confirmation", Long.class)
+                : 0L;
+        return new Stats(isEnabled(), counters.size(), holds.size(), reserved.sum(), rejected.sum(),
+                confirmed.sum(), released.sum(), expired.sum(), flushedRows.sum(),
+                backlog == null ? 0 : backlog, corrections.sum());
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private boolean enabled;
+        private int items;              // 카운터가 있는 상품 수
+        private int holds;              // 잡고 있는 예약 수
+        private long reserved;
+        private long rejected;          // 재고부족
+        private long confirmed;
+        private long released;
+        private long expired;
+        private long flushedRows;       // item 에 반영한 확정 기록 수
+        private long backlog;           // 반영 대기 확정 기록 수
+        private long corrections;       // 대사로 맞춘 횟수
+    }
+}
@@ -0,0 +1,22 @@
+package jpabook.jpashop.stock;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * jpashop.stock.reservation.*
+ */
+@Getter @Setter
+@ConfigurationProperties("jpashop.stock.reservation")
+public class StockReservationProperties {
+
+    private boolean enabled;                 // false 면 주문은 ItemStockRepository 조건부 update 로 차감
+    private long holdTtlMs = 30_000;         // 확정/해제 없이 이 시간이 지나면 예약을 풀어준다.
+    private int stripes = 8;                 // 상품별 카운터 분할 수
+    private long tickMs = 100;               // 타이밍 휠 한 칸 시간
+    private int wheelSize = 512;             // 타이밍 휠 칸 수 (2의 거듭제곱)
+    private long flushIntervalMs = 200;      // 확정분을 item 에 반영하는 주기
+    private int flushBatchSize = 1_000;      // 한 번에 반영할 확정 기록 수
+    private long reconcileIntervalMs = 60_000;
+}
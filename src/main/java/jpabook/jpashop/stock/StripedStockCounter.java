@@ -0,0 +1,96 @@
+package jpabook.jpashop.stock;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 상품 1개의 예약 가능 수량 카운터 (락 없이 CAS)
+ *
+ *   - 수량을 여러 칸(stripe)에 나눠 두고 스레드마다 다른 칸에서 뺀다. 인기 상품 하나에 CAS 가 몰려 재시도하는 것을 줄인다.
+ *   - 칸끼리 같은 캐시 라인을 쓰지 않도록 PAD 만큼 띄워 둔다. (false sharing)
+ *   - 한 칸에 모자라면 다른 칸을 차례로 보고, 그래도 없으면 모든 칸을 한 칸으로 모아 다시 본다. (이때만 락)
+ *   - 어떤 칸도 음수가 되지 않으므로 합계가 수량보다 커지는(초과판매) 일은 없다.
+ *     대사(adjust)의 음수 delta 도 칸마다 남은 만큼만 나눠 빼고, 모자라는 부분은 버린다. (0 이면 어차피 모두 거절)
+ */
+class StripedStockCounter {
+
+    private static final int PAD = 16;   // long 16개 = 128 byte
+
+    private final int stripes;
+    private final AtomicLongArray cells;
+
+    StripedStockCounter(long initial, int stripes) {
+        this.stripes = Math.max(1, stripes);
+        this.cells = new AtomicLongArray(this.stripes * PAD);
+        long share = Math.max(0, initial) / this.stripes;
+        long rest = Math.max(0, initial) % this.stripes;
+        for (int i = 0; i < this.stripes; i++) {
+            cells.set(i * PAD, share + (i < rest ? 1 : 0));
+        }
+    }
+
+    boolean tryAcquire(long quantity) {
+        int start = probe();
+        for (int i = 0; i < stripes; i++) {
+            int index = ((start + i) % stripes) * PAD;
+            long value;
+            while ((value = cells.get(index)) >= quantity) {
+                if (cells.compareAndSet(index, value, value - quantity)) {
+                    return true;
+                }
+            }
+        }
+        return acquireGathered(quantity);
+    }
+
+    /**
+     * 흩어진 수량을 첫 칸으로 모아서 다시 시도
+     */
+    private synchronized boolean acquireGathered(long quantity) {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.getAndSet(i * PAD, 0);
+        }
+        boolean acquired = total >= quantity;
+        cells.addAndGet(0, acquired ? total - quantity : total);
+        return acquired;
+    }
+
+    void release(long quantity) {
+        cells.addAndGet(probe() * PAD, quantity);
+    }
+
+    /**
+     * 대사 결과를 반영할 때만 사용
+     *   양수는 첫 칸에 더하고, 음수는 앞 칸부터 0 아래로 내려가지 않게 나눠 뺀다.
+     */
+    synchronized void adjust(long delta) {
+        if (delta >= 0) {
+            cells.addAndGet(0, delta);
+            return;
+        }
+        long remaining = -delta;
+        for (int i = 0; i < stripes && remaining > 0; i++) {
+            int index = i * PAD;
+            long value;
+            while ((value = cells.get(index)) > 0) {
+                long take = Math.min(value, remaining);
+                if (cells.compareAndSet(index, value, value - take)) {
+                    remaining -= take;
+                    break;
+                }
+            }
+        }
+    }
+
+    long available() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum;
+    }
+
+    private int probe() {
+        return (int) (Thread.currentThread().getId() % stripes);
+    }
+}
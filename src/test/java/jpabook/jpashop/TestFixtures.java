@@ -0,0 +1,56 @@
+package jpabook.jpashop;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.OrderService;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+/**
+ * 테스트 공용 데이터 (회원 / 상품 / 주문)
+ *   테스트 트랜잭션이 있으면 거기에 참여하고, 없으면 메소드마다 커밋한다.
+ *   회원 이름은 유니크이므로 다른 테스트가 커밋한 이름과 겹치지 않게 nanoTime 을 붙인다.
+ */
+@Component
+@Transactional
+public class TestFixtures {
+
+    private final EntityManager em;
+    private final OrderService orderService;
+
+    public TestFixtures(EntityManager em, OrderService orderService) {
+        this.em = em;
+        this.orderService = orderService;
+    }
+
+    public Member member() {
+        Member member = new Member();
+        member.setName("member-" + System.nanoTime());
+        member.setAddress(new Address("Seoul", "Test", "12345"));
+        em.persist(member);
+        return member;
+    }
+
+    public Book book() {
+        return book(10);
+    }
+
+    public Book book(int stockQuantity) {
+        Book book = new Book();
+        book.setName("JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(stockQuantity);
+        em.persist(book);
+        return book;
+    }
+
+    /**
+     * 새 회원이 새 상품(재고 10)을 1개 주문
+     */
+    public Long order() {
+        return orderService.order(member().getId(), book().getId(), 1);
+    }
+}
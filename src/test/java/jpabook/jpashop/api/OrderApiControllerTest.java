@@ -0,0 +1,72 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.TestFixtures;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class OrderApiControllerTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired TestFixtures fixtures;
+
+    @Test
+    public void 잘못된_커서는_400() throws Exception {
+        mockMvc.perform(get("/api/v3.2/orders").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v2/orders").param("cursor", "%%%"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v2/members").param("cursor", "abc"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void V6_limit_은_범위로_맞추고_다음_커서를_준다() throws Exception {
+        Long first = fixtures.order();
+        fixtures.order();
+
+        mockMvc.perform(get("/api/v6/orders").param("afterOrderId", String.valueOf(first - 1)).param("limit", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].orderId").value(first))
+                .andExpect(header().string(NextCursorHeader.NAME, String.valueOf(first)));
+        mockMvc.perform(get("/api/v6/orders").param("limit", "-5"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void 같은_멱등키로_다른_장바구니면_422() throws Exception {
+        Member member = fixtures.member();
+        Book book = fixtures.book();
+        String key = UUID.randomUUID().toString();
+        String body = "{\"memberId\":" + member.getId() + ",\"lines\":[{\"itemId\":" + book.getId() + ",\"count\":%d}]}";
+
+        mockMvc.perform(post("/api/orders").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(String.format(body, 1)))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/orders").header("Idempotency-Key", key)
+                        .contentType(MediaType.APPLICATION_JSON).content(String.format(body, 2)))
+                .andExpect(status().isUnprocessableEntity());
+    }
+}
@@ -0,0 +1,102 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.TestFixtures;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.monitoring.QueryBudget;
+import jpabook.jpashop.monitoring.QueryBudgetRule;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 주문 API 버전별 SQL 수는 데이터 크기와 무관해야 한다. (회원 목록 포함)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class OrderApiQueryBudgetTest {
+
+    private static final int[] DATASET_SIZES = {1, 10, 100};
+
+    @Rule public QueryBudgetRule budget = new QueryBudgetRule();
+
+    @Autowired MockMvc mockMvc;
+    @Autowired EntityManager em;
+    @Autowired OrderService orderService;
+    @Autowired TestFixtures fixtures;
+
+    @Test
+    @QueryBudget(statements = 2)
+    public void V5는_루트와_컬렉션_쿼리_2번() throws Exception {
+        for (int size : DATASET_SIZES) {
+            createOrders(size);
+            budget.measure("GET /api/v5/orders (+" + size + ")",
+                    () -> mockMvc.perform(get("/api/v5/orders")).andExpect(status().isOk()));
+        }
+    }
+
+    @Test
+    @QueryBudget(statements = 1)
+    public void V6는_쿼리_1번() throws Exception {
+        for (int size : DATASET_SIZES) {
+            createOrders(size);
+            budget.measure("GET /api/v6/orders (+" + size + ")",
+                    () -> mockMvc.perform(get("/api/v6/orders")).andExpect(status().isOk()));
+        }
+    }
+
+    @Test
+    @QueryBudget(statements = 2)
+    public void V2는_fetch_plan_으로_쿼리_2번() throws Exception {
+        for (int size : DATASET_SIZES) {
+            createOrders(size);
+            budget.measure("GET /api/v2/orders (+" + size + ")",
+                    () -> mockMvc.perform(get("/api/v2/orders")).andExpect(status().isOk()));
+        }
+    }
+
+    @Test
+    @QueryBudget(statements = 2)
+    public void 회원목록_V2는_페이지_쿼리와_count_쿼리() throws Exception {
+        for (int size : DATASET_SIZES) {
+            createMembers(size);
+            budget.measure("GET /api/v2/members?count=exact (+" + size + ")",
+                    () -> mockMvc.perform(get("/api/v2/members").param("count", "exact")).andExpect(status().isOk()));
+        }
+    }
+
+    private void createMembers(int count) {
+        for (int i = 0; i < count; i++) {
+            fixtures.member();
+        }
+        em.flush();
+        em.clear();
+    }
+
+    /**
+     * 주문을 추가하고 영속성 컨텍스트를 비운다. (측정 블록에서 flush / 1차 캐시 영향을 없앤다)
+     */
+    private void createOrders(int count) {
+        Member member = fixtures.member();
+        Book book = fixtures.book(count);
+        for (int i = 0; i < count; i++) {
+            orderService.order(member.getId(), book.getId(), 1);
+        }
+        em.flush();
+        em.clear();
+    }
+}
@@ -0,0 +1,59 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.TestFixtures;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * strict 프로필(OSIV 끔)에서 fetch plan 엔드포인트가 지연로딩 없이 응답하고, plan 밖의 연관을 응답하면 실패하는지 확인한다.
+ * 테스트 트랜잭션이 있으면 영속성 컨텍스트가 요청 끝까지 살아 있어서 문제가 가려지므로 @Transactional 을 붙이지 않는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("strict")
+public class OrderApiStrictProfileTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired TestFixtures fixtures;
+
+    @Before
+    public void 주문_하나는_있어야_한다() {
+        fixtures.order();
+    }
+
+    @Test
+    public void 주문_V1_V2는_트랜잭션_밖에서도_컬렉션이_채워져_있다() throws Exception {
+        mockMvc.perform(get("/api/v1/orders"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].orderItems[0].orderPrice").exists());
+        mockMvc.perform(get("/api/v2/orders"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].orderItems[0].itemName").exists());
+    }
+
+    @Test
+    public void 간단주문_V2() throws Exception {
+        mockMvc.perform(get("/api/v2/simple-orders"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").exists());
+    }
+
+    @Test
+    public void 간단주문_V1은_plan_밖의_주문상품을_응답하므로_실패() throws Exception {
+        // ORDER_SUMMARY 에 없는 orderItems 를 null 로 내보내지 않는다.
+        mockMvc.perform(get("/api/v1/simple-orders"))
+                .andExpect(status().isInternalServerError());
+    }
+}
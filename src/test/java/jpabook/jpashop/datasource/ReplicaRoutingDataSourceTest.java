@@ -0,0 +1,99 @@
+package jpabook.jpashop.datasource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary";
+    private static final String REPLICA_URL = "jdbc:h2:mem:routing-replica";
+
+    private final DataSourceRouteStats stats = new DataSourceRouteStats();
+    private ReplicaRoutingDataSource routing;
+
+    @Before
+    public void setUp() {
+        routing = new ReplicaRoutingDataSource(h2(PRIMARY_URL), Collections.singletonList(h2(REPLICA_URL)), stats, 0);
+        routing.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReadYourWrites.end();
+    }
+
+    @Test
+    public void 읽기전용_트랜잭션은_replica() throws Exception {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertRoute(REPLICA_URL);
+    }
+
+    @Test
+    public void 쓰기는_primary() throws Exception {
+        assertRoute(PRIMARY_URL);
+    }
+
+    @Test
+    public void read_your_writes_요청은_primary() throws Exception {
+        ReadYourWrites.begin(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertRoute(PRIMARY_URL);
+    }
+
+    @Test
+    public void 헬스체크에_실패한_replica_는_건너뛴다() throws Exception {
+        // Given
+        DataSource down = new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/down");
+        routing = new ReplicaRoutingDataSource(h2(PRIMARY_URL), Arrays.asList(down, h2(REPLICA_URL)), stats, 0);
+        routing.afterPropertiesSet();
+
+        // When
+        routing.checkHealth();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Then
+        assertRoute(REPLICA_URL);
+        assertRoute(REPLICA_URL);
+    }
+
+    @Test
+    public void 경로별로_커넥션_사용을_기록한다() throws Exception {
+        url();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        url();
+
+        assertEquals(2, stats.routes().size());
+        assertEquals(1, stats.routes().get(0).getConnections());
+    }
+
+    /** H2 는 URL 뒤에 설정(;DB_CLOSE_DELAY 등)을 붙여 돌려줄 수 있다. */
+    private void assertRoute(String expectedUrl) throws SQLException {
+        String url = url();
+        assertTrue(url, url.startsWith(expectedUrl));
+    }
+
+    private String url() throws SQLException {
+        try (Connection connection = routing.getConnection()) {
+            return connection.getMetaData().getURL();
+        }
+    }
+
+    private static DataSource h2(String url) {
+        return new DriverManagerDataSource(url + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
@@ -0,0 +1,18 @@
+package jpabook.jpashop.monitoring;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 테스트 메소드에서 QueryBudgetRule.measure(...) 로 측정한 블록마다 지켜야 할 한도 (음수는 검사 안 함)
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface QueryBudget {
+
+    long statements() default -1;
+
+    long allocatedBytes() default -1;
+}
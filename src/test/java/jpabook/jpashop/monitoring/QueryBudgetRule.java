@@ -0,0 +1,51 @@
+package jpabook.jpashop.monitoring;
+
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 쿼리 / 할당 예산 검사 (JUnit4 Rule)
+ *
+ *   @Rule public QueryBudgetRule budget = new QueryBudgetRule();
+ *
+ *   @Test @QueryBudget(statements = 2)
+ *   public void v5() { budget.measure("GET /api/v5/orders", () -> mockMvc.perform(get("/api/v5/orders"))); }
+ *
+ *   데이터 준비 쿼리는 세지 않도록 measure 로 감싼 블록만 검사한다.
+ */
+public class QueryBudgetRule extends TestWatcher {
+
+    @FunctionalInterface
+    public interface Block {
+        void run() throws Exception;
+    }
+
+    private QueryBudget budget;
+
+    @Override
+    protected void starting(Description description) {
+        budget = description.getAnnotation(QueryBudget.class);
+    }
+
+    public RequestMetrics.Snapshot measure(String name, Block block) throws Exception {
+        RequestMetrics.Snapshot snapshot;
+        try (RequestMetrics.Scope scope = RequestMetrics.open()) {
+            block.run();
+            snapshot = scope.finish();
+        }
+
+        if (budget != null) {
+            if (budget.statements() >= 0) {
+                assertTrue(name + " SQL " + snapshot.getStatements() + "번, 예산 " + budget.statements() + "번. " + snapshot,
+                        snapshot.getStatements() <= budget.statements());
+            }
+            if (budget.allocatedBytes() >= 0) {
+                assertTrue(name + " 할당 " + snapshot.getAllocatedBytes() + " bytes, 예산 " + budget.allocatedBytes() + " bytes. " + snapshot,
+                        snapshot.getAllocatedBytes() <= budget.allocatedBytes());
+            }
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,44 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class OrderFlatAssemblerTest {
+
+    @Test
+    public void 연속된로우를_주문하나로_접는다() {
+        // Given
+        List<OrderFlatDto> rows = Arrays.asList(
+                row(1L, "JPA1 BOOK"), row(1L, "JPA2 BOOK"),
+                row(2L, "SPRING1 BOOK"),
+                row(3L, "SPRING2 BOOK"), row(3L, "SPRING3 BOOK"), row(3L, "SPRING4 BOOK"));
+
+        // When
+        List<OrderQueryDto> orders = OrderFlatAssembler.assemble(rows);
+
+        // Then
+        assertEquals("주문번호 수만큼 주문이 만들어져야 한다.", 3, orders.size());
+        assertEquals("정렬 순서가 유지되어야 한다.", Long.valueOf(1L), orders.get(0).getOrderId());
+        assertEquals(2, orders.get(0).getOrderItems().size());
+        assertEquals(1, orders.get(1).getOrderItems().size());
+        assertEquals(3, orders.get(2).getOrderItems().size());
+        assertEquals("SPRING4 BOOK", orders.get(2).getOrderItems().get(2).getItemName());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 정렬되지않은로우는_조립할수없다() {
+        OrderFlatAssembler.assemble(Arrays.asList(row(2L, "A"), row(1L, "B")));
+    }
+
+    private OrderFlatDto row(Long orderId, String itemName) {
+        return new OrderFlatDto(orderId, "홍길동", LocalDateTime.of(2023, 2, 18, 10, 0), OrderStatus.ORDER,
+                new Address("장성", "1", "1111"), itemName, 10000, 1);
+    }
+}
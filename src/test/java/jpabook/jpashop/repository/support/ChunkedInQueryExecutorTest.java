@@ -0,0 +1,35 @@
+package jpabook.jpashop.repository.support;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChunkedInQueryExecutorTest {
+
+    private final ChunkedInQueryExecutor executor = new ChunkedInQueryExecutor(null, null, 8, 1);
+
+    @Test
+    public void 청크크기로_나누고_마지막청크는_2의거듭제곱으로_채운다() {
+        // When
+        List<List<Long>> partitions = executor.partition(ids(11));
+
+        // Then
+        assertEquals(2, partitions.size());
+        assertEquals(8, partitions.get(0).size());
+        assertEquals("3건은 4건으로 채워져야 한다.", 4, partitions.get(1).size());
+        assertEquals("마지막 ID 로 채운다.", Long.valueOf(11L), partitions.get(1).get(3));
+    }
+
+    @Test
+    public void 한건은_채우지않는다() {
+        assertEquals(1, executor.partition(ids(1)).get(0).size());
+    }
+
+    private List<Long> ids(int count) {
+        return LongStream.rangeClosed(1, count).boxed().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,60 @@
+package jpabook.jpashop.repository.support;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class TotalCountCacheTest {
+
+    @Test
+    public void 키_수를_넘으면_가장_오래_안_읽힌_키를_버린다() throws Exception {
+        TotalCountCache cache = new TotalCountCache(2, 600_000);
+        AtomicInteger counted = new AtomicInteger();
+
+        cache.get("a", TotalCountCache.Mode.ESTIMATED, () -> counted.incrementAndGet());
+        Thread.sleep(2);
+        cache.get("b", TotalCountCache.Mode.ESTIMATED, () -> counted.incrementAndGet());
+        Thread.sleep(2);
+        cache.get("a", TotalCountCache.Mode.ESTIMATED, () -> counted.incrementAndGet());   // a 를 다시 읽음
+        cache.get("c", TotalCountCache.Mode.ESTIMATED, () -> counted.incrementAndGet());   // b 가 밀려난다.
+        assertEquals(3, counted.get());
+
+        cache.get("a", TotalCountCache.Mode.ESTIMATED, () -> counted.incrementAndGet());
+        cache.get("c", TotalCountCache.Mode.ESTIMATED, () -> counted.incrementAndGet());
+        assertEquals(3, counted.get());
+        cache.get("b", TotalCountCache.Mode.ESTIMATED, () -> counted.incrementAndGet());
+        assertEquals(4, counted.get());
+        assertEquals(2, cache.stats().getKeys());
+    }
+
+    @Test
+    public void 대사는_그사이_읽힌_키만_다시_센다() {
+        TotalCountCache cache = new TotalCountCache(10, 600_000);
+        AtomicInteger readCounts = new AtomicInteger();
+        AtomicInteger idleCounts = new AtomicInteger();
+        cache.get("read", TotalCountCache.Mode.ESTIMATED, () -> readCounts.incrementAndGet());
+        cache.get("idle", TotalCountCache.Mode.ESTIMATED, () -> idleCounts.incrementAndGet());
+
+        cache.get("read", TotalCountCache.Mode.ESTIMATED, () -> readCounts.incrementAndGet());
+        cache.reconcile();
+        assertEquals(2, readCounts.get());
+        assertEquals(1, idleCounts.get());
+
+        cache.reconcile();   // 그 뒤로 아무도 안 읽었다.
+        assertEquals(2, readCounts.get());
+    }
+
+    @Test
+    public void 오래_안_읽힌_키는_대사때_버린다() throws Exception {
+        TotalCountCache cache = new TotalCountCache(10, 1);
+        cache.get("old", TotalCountCache.Mode.ESTIMATED, () -> 1L);
+        Thread.sleep(5);
+
+        cache.reconcile();
+
+        assertEquals(0, cache.stats().getKeys());
+        assertEquals(1, cache.stats().getEvictions());
+    }
+}
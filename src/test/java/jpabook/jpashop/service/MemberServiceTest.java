@@ -1,5 +1,6 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.TestFixtures;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.repository.MemberRepository;
@@ -21,6 +22,9 @@ import javax.persistence.EntityManager;
 public class MemberServiceTest {
     @Autowired MemberService memberService;
     @Autowired MemberRepository memberRepository;
+    @Autowired OrderService orderService;
+    @Autowired OrderQueryService orderQueryService;
+    @Autowired TestFixtures fixtures;
     @Autowired EntityManager em;                     // Insert 쿼리를 꼭 확인하기 위해서,,,
 
     @Test
@@ -44,11 +48,12 @@ public class MemberServiceTest {
     @Test(expected = IllegalStateException.class)
     public void  중복회원가입테스트() {
         // Given
+        String name = "Luke-" + System.nanoTime();   // 다른 테스트가 커밋한 이름과 겹치지 않게
         Member member1 = new Member();
-        member1.setName("Anakin");
+        member1.setName(name);
 
         Member member2 = new Member();
-        member2.setName("Anakin");
+        member2.setName(name);
 
         // When
         memberService.join(member1);
@@ -63,6 +68,42 @@ public class MemberServiceTest {
     }
 
 
+    @Test(expected = IllegalStateException.class)
+    public void 이름검사를_지나쳐도_유니크제약으로_중복가입_실패() {
+        // Given: 다른 트랜잭션이 검사 없이 먼저 저장한 이름 (동시 가입)
+        String name = "Leia-" + System.nanoTime();
+        Member other = new Member();
+        other.setName(name);
+        memberRepository.save(other);
+        em.flush();
+
+        Member member = new Member();
+        member.setName(name);
+
+        // When
+        memberService.join(member);
+
+        // Then
+        fail("유니크 제약 위반이 IllegalStateException 으로 바뀌어야 한다.");
+    }
+
+    @Test
+    public void 이름을_바꾸면_주문상세_캐시도_새_이름() {
+        // Given: 캐시에 들어간 주문 상세
+        Member member = fixtures.member();
+        Long orderId = orderService.order(member.getId(), fixtures.book().getId(), 1);
+        em.flush();
+        orderQueryService.findOrderDetail(orderId);
+
+        // When
+        String renamed = "Solo-" + System.nanoTime();
+        memberService.update(member.getId(), renamed);
+        em.flush();
+
+        // Then
+        assertEquals(renamed, orderQueryService.findOrderDetail(orderId).getName());
+    }
+
     @Test
     public void 회원ID조회() {
         // Given
@@ -0,0 +1,167 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.OrderIdempotencyKey;
+import jpabook.jpashop.exception.IdempotencyKeyMismatchException;
+import jpabook.jpashop.repository.OrderIdempotencyKeyRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 멱등 처리 단계별 확인 (LRU / 처리 중 / 키 테이블 / PK 충돌)
+ *   키 저장이 커밋되어야 하므로 테스트 트랜잭션을 쓰지 않는다. 주문 대신 주문ID 만 돌려주는 작업으로 확인한다.
+ *   LRU 를 건너뛰려면 캐시 크기 0 인 인스턴스를 따로 만든다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderIdempotencyTest {
+
+    @Autowired OrderIdempotencyKeyRepository repository;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    private OrderIdempotency idempotency;
+    private String key;
+    private String fingerprint;
+
+    @Before
+    public void setUp() {
+        idempotency = new OrderIdempotency(repository, transactionManager, 0, 24);
+        key = UUID.randomUUID().toString();
+        fingerprint = OrderIdempotency.fingerprint(1L, Arrays.asList(new OrderLine(10L, 1), new OrderLine(20L, 2)));
+    }
+
+    @Test
+    public void 같은_장바구니면_줄_순서가_달라도_같은_지문() {
+        assertEquals(fingerprint, OrderIdempotency.fingerprint(1L,
+                Arrays.asList(new OrderLine(20L, 1), new OrderLine(10L, 1), new OrderLine(20L, 1))));
+        assertTrue(!fingerprint.equals(OrderIdempotency.fingerprint(2L,
+                Arrays.asList(new OrderLine(10L, 1), new OrderLine(20L, 2)))));
+    }
+
+    @Test
+    public void LRU_에_없으면_키_테이블로_응답() {
+        Long first = idempotency.execute(key, fingerprint, () -> 1001L);
+
+        Long retry = idempotency.execute(key, fingerprint, () -> {
+            throw new AssertionError("다시 주문하면 안 된다.");
+        });
+
+        assertEquals(first, retry);
+        assertEquals(1, idempotency.stats().getTableHits());
+        assertEquals(0, idempotency.stats().getCacheHits());
+    }
+
+    @Test
+    public void 같은_키로_다른_주문이면_거절() {
+        OrderIdempotency cached = new OrderIdempotency(repository, transactionManager, 10, 24);
+        cached.execute(key, fingerprint, () -> 1002L);
+        String other = OrderIdempotency.fingerprint(1L, Arrays.asList(new OrderLine(10L, 5)));
+
+        try {
+            cached.execute(key, other, () -> 1003L);   // LRU
+            fail("LRU 에 있는 키도 지문이 다르면 거절해야 한다.");
+        } catch (IdempotencyKeyMismatchException expected) {
+        }
+        try {
+            idempotency.execute(key, other, () -> 1003L);   // 키 테이블
+            fail("키 테이블에 있는 키도 지문이 다르면 거절해야 한다.");
+        } catch (IdempotencyKeyMismatchException expected) {
+        }
+    }
+
+    @Test
+    public void 동시에_같은_키면_먼저_온_요청의_결과를_기다린다() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Long> first = executor.submit(() -> idempotency.execute(key, fingerprint, () -> {
+                executions.incrementAndGet();
+                started.countDown();
+                await(release);
+                return 1004L;
+            }));
+            started.await(5, TimeUnit.SECONDS);
+            Future<Long> second = executor.submit(() -> idempotency.execute(key, fingerprint, () -> {
+                executions.incrementAndGet();
+                return 1005L;
+            }));
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (idempotency.stats().getCollapsed() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            assertEquals(Long.valueOf(1004L), first.get(5, TimeUnit.SECONDS));
+            assertEquals(Long.valueOf(1004L), second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, executions.get());
+            assertEquals(1, idempotency.stats().getCollapsed());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void 바깥_트랜잭션이_롤백되면_LRU_에_남기지_않는다() {
+        OrderIdempotency cached = new OrderIdempotency(repository, transactionManager, 10, 24);
+        new TransactionTemplate(transactionManager).execute(status -> {
+            cached.execute(key, fingerprint, () -> 1008L);
+            status.setRollbackOnly();
+            return null;
+        });
+
+        Long orderId = cached.execute(key, fingerprint, () -> 1009L);
+
+        assertEquals(Long.valueOf(1009L), orderId);
+        assertEquals(0, cached.stats().getCacheHits());
+        assertEquals(2, cached.stats().getExecuted());
+    }
+
+    @Test
+    public void 다른_서버가_먼저_커밋하면_PK_충돌_후_그_주문번호() {
+        TransactionTemplate otherServer = new TransactionTemplate(transactionManager);
+        otherServer.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        // 키 테이블 확인과 저장 사이에 다른 서버가 같은 키로 커밋했다.
+        Long orderId = idempotency.execute(key, fingerprint, () -> {
+            otherServer.execute(status -> {
+                repository.save(OrderIdempotencyKey.of(key, fingerprint, 1006L));
+                return null;
+            });
+            return 1007L;
+        });
+
+        assertEquals(Long.valueOf(1006L), orderId);
+        assertEquals(1, idempotency.stats().getConflicts());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
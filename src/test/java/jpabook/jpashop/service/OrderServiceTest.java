@@ -3,7 +3,10 @@ package jpabook.jpashop.service;
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemStockRepository;
 import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSearchQueries;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -14,6 +17,10 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
 
 import static org.junit.Assert.fail;
 
@@ -24,13 +31,16 @@ public class OrderServiceTest {
     @Autowired EntityManager em;
     @Autowired OrderService orderService;
     @Autowired OrderRepository orderRepository;
+    @Autowired OrderIdempotency orderIdempotency;
+    @Autowired ItemStockRepository itemStockRepository;
+    @Autowired OrderSearchQueries orderSearchQueries;
 
     @Test
     @Rollback(false)
     public void 상품주문() {
         // Given
         Member member = new Member();
-        member.setName("Anakin");
+        member.setName("Anakin-" + System.nanoTime());   // 회원 이름은 유니크
         member.setAddress(new Address("SungNam","JungJa","11223"));
         em.persist((member));
 
@@ -91,6 +101,124 @@ public class OrderServiceTest {
     }
 
 
+    @Test
+    public void 장바구니주문_같은상품은_합쳐서_한줄() {
+        // Given
+        Member member = createMember();
+        Book book1 = createBook();
+        Book book2 = createBook();
+
+        // When
+        Long orderId = orderService.order(member.getId(), Arrays.asList(
+                new OrderLine(book2.getId(), 1),
+                new OrderLine(book1.getId(), 2),
+                new OrderLine(book2.getId(), 3)));
+
+        // Then
+        Order getOrder = orderRepository.findOne(orderId);
+        Assert.assertEquals("상품별로 한 줄이어야 한다.", 2, getOrder.getOrderItems().size());
+        Assert.assertEquals(8, book1.getStockQuantity());
+        Assert.assertEquals("같은 상품 수량은 합쳐서 차감한다.", 6, book2.getStockQuantity());
+    }
+
+    @Test
+    public void 사본재고가_오래돼도_DB_재고로_판정() {
+        // Given: 다른 트랜잭션에서 입고가 커밋돼서 엔티티 사본(10)보다 DB 재고(15)가 많다.
+        Member member = createMember();
+        Book book = createBook();
+        em.flush();
+        itemStockRepository.increase(book.getId(), 5);
+
+        // When
+        orderService.order(member.getId(), book.getId(), 12);
+        em.flush();
+        em.clear();
+
+        // Then
+        Assert.assertEquals(3, em.find(Book.class, book.getId()).getStockQuantity());
+    }
+
+    @Test
+    public void 대량주문_재고부족인_주문만_실패() {
+        // Given
+        Member member = createMember();
+        Book book = createBook();   // 재고 10
+
+        // When
+        List<BulkOrderResult> results = orderService.orderAll(Arrays.asList(
+                new BulkOrderRequest(member.getId(), book.getId(), 6),
+                new BulkOrderRequest(member.getId(), book.getId(), 6),   // 남은 재고 4
+                new BulkOrderRequest(member.getId(), book.getId(), 4),
+                new BulkOrderRequest(-1L, book.getId(), 1)), 0);
+
+        // Then
+        Assert.assertTrue(results.get(0).isSuccess());
+        Assert.assertFalse("남은 재고보다 많으면 실패해야 한다.", results.get(1).isSuccess());
+        Assert.assertTrue(results.get(2).isSuccess());
+        Assert.assertFalse("없는 회원은 실패해야 한다.", results.get(3).isSuccess());
+        Assert.assertEquals("성공한 주문만큼 재고가 줄어야 한다.", 0, book.getStockQuantity());
+    }
+
+    @Test
+    public void 일괄취소_이미취소된_주문은_건너뜀() {
+        // Given
+        Member member = createMember();
+        Book book = createBook();   // 재고 10
+        Long orderId1 = orderService.order(member.getId(), book.getId(), 2);
+        Long orderId2 = orderService.order(member.getId(), book.getId(), 3);
+        orderService.cancelOrder(orderId2);
+
+        // When
+        List<Long> cancelled = orderService.cancelOrders(Arrays.asList(orderId1, orderId2, orderId1));
+        em.flush();
+        em.clear();
+
+        // Then
+        Assert.assertEquals(Collections.singletonList(orderId1), cancelled);
+        Assert.assertEquals(OrderStatus.CANCEL, orderRepository.findOne(orderId1).getStatus());
+        Assert.assertEquals("재고는 주문마다 한 번씩만 복구해야 한다.", 10, em.find(Book.class, book.getId()).getStockQuantity());
+    }
+
+    @Test
+    public void 같은_멱등키로_재시도하면_처음_주문번호() {
+        // Given
+        Member member = createMember();
+        Book book = createBook();
+        String key = UUID.randomUUID().toString();
+        String fingerprint = OrderIdempotency.fingerprint(member.getId(), Collections.singletonList(new OrderLine(book.getId(), 2)));
+
+        // When
+        Long first = orderIdempotency.execute(key, fingerprint, () -> orderService.order(member.getId(), book.getId(), 2));
+        Long retry = orderIdempotency.execute(key, fingerprint, () -> orderService.order(member.getId(), book.getId(), 2));
+
+        // Then
+        Assert.assertEquals("재시도는 처음 주문번호를 돌려줘야 한다.", first, retry);
+        Assert.assertEquals("재고는 한 번만 차감한다.", 8, book.getStockQuantity());
+    }
+
+    @Test
+    public void Criteria_검색은_조합별_트리를_재사용하고_문자열_검색과_같은_결과() {
+        // Given
+        Member member = createMember();
+        Long orderId = orderService.order(member.getId(), createBook().getId(), 1);
+        em.flush();
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(member.getName());
+        orderSearch.setOrderStatus(OrderStatus.ORDER);
+
+        // When
+        List<Order> byString = orderRepository.findAllByString(orderSearch, null, 10).getData();
+        List<Order> byCriteria = orderRepository.findAllByCriteria(orderSearch, null, 10).getData();
+        long hits = orderSearchQueries.stats().getHits();
+        orderRepository.findAllByCriteria(orderSearch, null, 10);
+
+        // Then
+        Assert.assertEquals(1, byCriteria.size());
+        Assert.assertEquals(orderId, byCriteria.get(0).getId());
+        Assert.assertEquals(byString, byCriteria);
+        Assert.assertEquals("같은 조합이면 만들어 둔 Criteria 트리를 다시 쓴다.", hits + 1, orderSearchQueries.stats().getHits());
+    }
+
     // 샘플 상품 생성하기
     private Book createBook() {
         Book book = new Book();
@@ -105,7 +233,7 @@ public class OrderServiceTest {
     // 샘플 회원 생성하기
     private Member createMember() {
         Member member = new Member();
-        member.setName("홍길동");
+        member.setName("홍길동-" + System.nanoTime());   // 회원 이름은 유니크 (InitDb 의 홍길동과 겹치지 않게)
         member.setAddress(new Address("Wonju-City","Jumsil-Gil","26"));
         em.persist(member);
 
@@ -0,0 +1,32 @@
+package jpabook.jpashop.stock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class HashedTimingWheelTest {
+
+    @Test
+    public void 확정되지_않은_예약은_TTL_후_만료() throws Exception {
+        List<String> expired = new ArrayList<>();
+        try (HashedTimingWheel<String> wheel = new HashedTimingWheel<>(TimeUnit.HOURS.toMillis(1), 4, expired::add)) {
+            wheel.schedule("hold-1", TimeUnit.HOURS.toMillis(1));       // 다음 틱
+            wheel.schedule("hold-5", TimeUnit.HOURS.toMillis(5));       // 한 바퀴(4칸) 넘게 뒤, hold-1 과 같은 칸
+
+            wheel.tick();
+            assertEquals(1, expired.size());   // 같은 칸이지만 hold-5 는 아직 만료 틱이 아니다.
+
+            wheel.tick();
+            wheel.tick();
+            wheel.tick();
+            assertEquals(1, expired.size());
+
+            wheel.tick();
+            assertEquals(2, expired.size());
+        }
+    }
+}
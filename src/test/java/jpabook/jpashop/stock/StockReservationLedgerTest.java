@@ -0,0 +1,171 @@
+package jpabook.jpashop.stock;
+
+import jpabook.jpashop.TestFixtures;
+import jpabook.jpashop.domain.StockConfirmation;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 예약 원장을 켠 주문/취소/롤백/반영
+ *   커밋 후/롤백 후 콜백과 별도 트랜잭션 flush 를 확인해야 하므로 테스트 트랜잭션을 쓰지 않는다.
+ *   주기 작업(flush, 대사)은 테스트에서 직접 호출하도록 주기를 길게 둔다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.stock.reservation.enabled=true",
+        "jpashop.stock.reservation.hold-ttl-ms=300",
+        "jpashop.stock.reservation.flush-interval-ms=3600000",
+        "jpashop.stock.reservation.reconcile-interval-ms=3600000"
+})
+public class StockReservationLedgerTest {
+
+    @Autowired StockReservationLedger ledger;
+    @Autowired OrderService orderService;
+    @Autowired TestFixtures fixtures;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    private Long memberId;
+    private Long itemId;
+
+    @Before
+    public void setUp() {
+        memberId = fixtures.member().getId();
+        itemId = fixtures.book().getId();
+    }
+
+    @Test
+    public void 주문_롤백_취소_후_flush_하면_item_재고에_반영() {
+        // 주문 3 (커밋): item 행은 그대로, 확정 기록만 남는다.
+        Long orderId = orderService.order(memberId, itemId, 3);
+        assertEquals(10, stockQuantity());
+        assertEquals(1, confirmations());
+
+        // 주문 4 (롤백): 예약분은 카운터로 돌아온다.
+        new TransactionTemplate(transactionManager).execute(status -> {
+            orderService.order(memberId, itemId, 4);
+            status.setRollbackOnly();
+            return null;
+        });
+        assertEquals(1, confirmations());
+
+        // 주문 2 (커밋), 남은 예약 가능 수량 5 -> 6 은 재고부족
+        orderService.order(memberId, itemId, 2);
+        try {
+            orderService.order(memberId, itemId, 6);
+            fail("예약 가능 수량을 넘으면 재고부족이어야 한다.");
+        } catch (NotEnoughStockException expected) {
+        }
+
+        // 주문 3 취소: 복구 기록(-3)을 남기고 커밋 후 카운터에 더한다.
+        orderService.cancelOrder(orderId);
+        assertEquals(3, confirmations());
+        orderService.order(memberId, itemId, 8);
+
+        // When
+        ledger.flush();
+
+        // Then: 10 - 3 - 2 + 3 - 8
+        assertEquals(0, confirmations());
+        assertEquals(0, stockQuantity());
+    }
+
+    @Test
+    public void 재기동시_남은_확정기록을_반영() {
+        // Given: 이전 실행에서 반영 못 한 확정 기록
+        new TransactionTemplate(transactionManager).execute(status -> {
+            em.persist(StockConfirmation.of(itemId, 4));
+            em.persist(StockConfirmation.of(itemId, -1));
+            return null;
+        });
+
+        // When
+        ledger.recover();
+
+        // Then
+        assertEquals(0, confirmations());
+        assertEquals(7, stockQuantity());
+    }
+
+    @Test
+    public void 확정하지_않은_예약은_TTL_후_카운터로_돌아온다() throws Exception {
+        StockHold hold = ledger.reserve(itemId, 10);
+        try {
+            ledger.reserve(itemId, 1);
+            fail("예약으로 다 잡혀 있어야 한다.");
+        } catch (NotEnoughStockException expected) {
+        }
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (hold.getState() == StockHold.State.PENDING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertEquals(StockHold.State.EXPIRED, hold.getState());
+        ledger.release(ledger.reserve(itemId, 10));
+    }
+
+    @Test
+    public void 만료된_예약을_확정하면_재고부족() throws Exception {
+        StockHold hold = ledger.reserve(itemId, 1);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (hold.getState() == StockHold.State.PENDING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        try {
+            new TransactionTemplate(transactionManager).execute(status -> {
+                ledger.confirm(hold);
+                return null;
+            });
+            fail("만료된 예약은 그 주문만 재고부족으로 실패해야 한다.");
+        } catch (NotEnoughStockException expected) {
+        }
+        assertEquals(0, confirmations());
+    }
+
+    @Test
+    public void 대사는_두번_연속_같은_차이일_때만_카운터를_맞춘다() {
+        // Given: 카운터를 채운 뒤 원장을 거치지 않고 DB 재고가 바뀌었다. (10 -> 15)
+        ledger.release(ledger.reserve(itemId, 1));
+        jdbcTemplate.update("update item set stock_quantity = stock_quantity + 5 where item_id = ?", itemId);
+
+        // When: 한 번은 의심만 한다.
+        ledger.reconcile();
+        try {
+            ledger.release(ledger.reserve(itemId, 15));
+            fail("첫 대사에서는 카운터를 바꾸지 않아야 한다.");
+        } catch (NotEnoughStockException expected) {
+        }
+
+        // Then: 두 번째도 같은 차이면 맞춘다.
+        long corrections = ledger.stats().getCorrections();
+        ledger.reconcile();
+        assertTrue(ledger.stats().getCorrections() > corrections);
+        ledger.release(ledger.reserve(itemId, 15));
+    }
+
+    private int stockQuantity() {
+        return jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, itemId);
+    }
+
+    private int confirmations() {
+        return jdbcTemplate.queryForObject("select count(*) from stock_confirmation where item_id = ?", Integer.class, itemId);
+    }
+}
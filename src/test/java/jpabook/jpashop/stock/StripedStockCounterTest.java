@@ -0,0 +1,71 @@
+package jpabook.jpashop.stock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StripedStockCounterTest {
+
+    @Test
+    public void 여러칸에_흩어진_수량도_모아서_예약() {
+        StripedStockCounter counter = new StripedStockCounter(10, 8);   // 칸마다 1~2개
+
+        assertTrue(counter.tryAcquire(10));
+        assertEquals(0, counter.available());
+        assertFalse(counter.tryAcquire(1));
+    }
+
+    @Test
+    public void 대사로_줄일때_어떤_칸도_음수가_되지_않음() {
+        StripedStockCounter counter = new StripedStockCounter(8, 4);   // 칸마다 2개
+
+        counter.adjust(-5);
+        assertEquals(3, counter.available());
+
+        counter.adjust(-10);   // 남은 것보다 많이 빼도 0 에서 멈춘다.
+        assertEquals(0, counter.available());
+        assertFalse(counter.tryAcquire(1));
+
+        counter.adjust(2);
+        assertTrue(counter.tryAcquire(2));
+    }
+
+    @Test
+    public void 동시에_예약해도_초과판매_없음() throws Exception {
+        StripedStockCounter counter = new StripedStockCounter(1_000, 8);
+        AtomicInteger acquired = new AtomicInteger();
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 200; i++) {
+                    if (counter.tryAcquire(1)) {
+                        acquired.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(1_000, acquired.get());
+        assertEquals(0, counter.available());
+    }
+}